@@ -0,0 +1,66 @@
+#!/bin/bash
+
+# Compares startup time and resident memory of the build variants: the plain jar, the AOT-processed jar
+# with a CDS archive (-Pcds) and the GraalVM native image (-Pnative, only if GraalVM's native-image is
+# installed). Each variant is started RUNS times with the prod profile; StartupReport logs the time from
+# process start to ready and the RSS at that point, and the median of both is printed per variant.
+#
+# Requirements: a MongoDB reachable through the prod profile (MONGO_ENDPOINT, MONGO_WRITE_CREDS).
+#
+# Usage: ./compareStartup.sh [runs]
+# Example: MONGO_ENDPOINT=cluster0.example.mongodb.net MONGO_WRITE_CREDS=creds.json ./compareStartup.sh 5
+
+RUNS="${1:-5}"
+PORT="${PORT:-8080}"
+JAR="target/demo-0.0.1-SNAPSHOT.jar"
+
+if [ -z "$MONGO_ENDPOINT" ]; then
+    echo "MONGO_ENDPOINT (and MONGO_WRITE_CREDS) are required, the variants are built for the prod profile"
+    exit 1
+fi
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+# Starts the command until its ready line appears, RUNS times, and prints the medians
+measure() {
+    local name="$1"
+    shift
+    local log="target/compare-startup-$name.log"
+    local times=() rss=()
+    for _ in $(seq 1 "$RUNS"); do
+        SPRING_PROFILES_ACTIVE=prod "$@" --server.port="$PORT" > "$log" 2>&1 &
+        local pid=$!
+        local line=""
+        for _ in $(seq 1 600); do
+            line=$(grep -m1 "Ready in" "$log")
+            [ -n "$line" ] && break
+            sleep 0.1
+        done
+        kill "$pid"
+        wait "$pid" 2> /dev/null
+        if [ -z "$line" ]; then
+            echo "$name did not start, see $log"
+            return 1
+        fi
+        times+=("$(echo "$line" | sed -E 's/.*Ready in ([0-9]+) ms.*/\1/')")
+        rss+=("$(echo "$line" | sed -E 's/.*RSS ([0-9]+) MB.*/\1/')")
+    done
+    printf '%-8s ready %6s ms   RSS %5s MB\n' "$name" \
+        "$(printf '%s\n' "${times[@]}" | median)" "$(printf '%s\n' "${rss[@]}" | median)"
+}
+
+./mvnw -q -DskipTests package || exit 1
+measure jar java -jar "$JAR"
+
+./mvnw -q -Pcds -DskipTests package || exit 1
+(cd target/cds && measure cds java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true \
+    -jar demo-0.0.1-SNAPSHOT.jar)
+
+if command -v native-image > /dev/null; then
+    ./mvnw -q -Pnative -DskipTests native:compile || exit 1
+    measure native target/demo
+else
+    echo "native   skipped, GraalVM native-image is not on the PATH"
+fi
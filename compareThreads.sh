@@ -0,0 +1,60 @@
+#!/bin/bash
+
+# Compares platform-thread and virtual-thread request handling for the /v1/examples/dogs endpoints.
+# Starts the application once per mode, drives it with hey (https://github.com/rakyll/hey) and prints
+# throughput and the latency distribution (including p99) for each run.
+#
+# Requirements: Java 21 on the PATH, hey, and a MongoDB reachable by the local profile.
+#
+# Usage: ./compareThreads.sh [concurrency] [duration]
+# Example: ./compareThreads.sh 1000 30s
+
+CONCURRENCY="${1:-500}"
+DURATION="${2:-30s}"
+PORT="${PORT:-8080}"
+BASE_URL="http://localhost:$PORT/v1/examples"
+JAR="target/demo-0.0.1-SNAPSHOT.jar"
+
+if ! command -v hey > /dev/null; then
+    echo "hey is required: https://github.com/rakyll/hey"
+    exit 1
+fi
+
+./mvnw -q -Pjava21 -DskipTests package || exit 1
+
+wait_for_startup() {
+    for _ in $(seq 1 60); do
+        if curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "Application did not start, see target/compare-threads-$1.log"
+    return 1
+}
+
+run_mode() {
+    local virtual="$1"
+    echo "=== spring.threads.virtual.enabled=$virtual (concurrency $CONCURRENCY, duration $DURATION)"
+
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+        > "target/compare-threads-$virtual.log" 2>&1 &
+    local pid=$!
+    wait_for_startup "$virtual" || { kill "$pid"; return 1; }
+
+    # Seed a dog so the lookup endpoint has something to return
+    local id
+    id=$(curl -sf -X POST "$BASE_URL/dogs" -H 'Content-Type: application/json' \
+        -d '{"breed":"husky","name":"balto"}' | sed -E 's/.*"id":"([^"]+)".*/\1/')
+
+    echo "--- GET /dogs?limit=100"
+    hey -z "$DURATION" -c "$CONCURRENCY" "$BASE_URL/dogs?limit=100"
+    echo "--- GET /dogs/{id}"
+    hey -z "$DURATION" -c "$CONCURRENCY" "$BASE_URL/dogs/$id"
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null
+}
+
+run_mode false
+run_mode true
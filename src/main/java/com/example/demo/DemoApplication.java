@@ -1,13 +1,30 @@
 package com.example.demo;
 
+import com.example.demo.config.DogTransferRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class DemoApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(DemoApplication.class, args);
+		SpringApplication application = new SpringApplication(DemoApplication.class);
+		// Export/import mode needs no web server, wherever the mode is set. Decided once the environment is
+		// prepared, before the application context is created
+		application.addListeners((ApplicationListener<ApplicationEnvironmentPreparedEvent>) event -> {
+			if (event.getEnvironment().containsProperty(DogTransferRunner.MODE_PROPERTY)) {
+				event.getSpringApplication().setWebApplicationType(WebApplicationType.NONE);
+			}
+		});
+		ConfigurableApplicationContext context = application.run(args);
+		// Export/import mode has done its work once the runners returned
+		if (context.getEnvironment().containsProperty(DogTransferRunner.MODE_PROPERTY)) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
@@ -0,0 +1,42 @@
+package com.example.demo.config;
+
+import com.example.demo.services.DogTransferService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Command-line mode: with {@code dogs.transfer.mode} set to {@code export} or {@code import}, the application
+ * copies the dogs collection to or from {@code dogs.transfer.file} through {@link DogTransferService} and then
+ * exits (see {@code DemoApplication}). A failed transfer fails startup, so the process exits non-zero.
+ */
+@Component
+@ConditionalOnProperty(name = "dogs.transfer.mode")
+@RequiredArgsConstructor
+public class DogTransferRunner implements ApplicationRunner {
+
+    public static final String MODE_PROPERTY = "dogs.transfer.mode";
+
+    private final DogTransferService dogTransferService;
+
+    @Value("${" + MODE_PROPERTY + "}")
+    private String mode;
+
+    @Value("${dogs.transfer.file}")
+    private String file;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        switch (mode) {
+            case "export" -> dogTransferService.export(Path.of(file));
+            case "import" -> dogTransferService.importFrom(Path.of(file));
+            default -> throw new IllegalArgumentException(
+                    "Unsupported " + MODE_PROPERTY + " '" + mode + "', expected export or import");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+
+// Populates @LastModifiedDate on Dog for repository saves and bulk inserts, on both stacks.
+// Kept out of DemoApplication so web slice tests don't need a Mongo mapping context.
+@Configuration
+@EnableMongoAuditing
+@EnableReactiveMongoAuditing
+public class MongoAuditingConfig {
+}
@@ -0,0 +1,69 @@
+package com.example.demo.config;
+
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool, timeout, compression and read preference settings for every MongoClient,
+ * whether created by Spring Boot or by {@link MongoConfig}. Each {@code mongo.*} property can be
+ * overridden through its environment variable, e.g. {@code MONGO_POOL_MAX_SIZE=200}.
+ */
+@Configuration
+public class MongoClientSettingsConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoClientTuning(
+            @Value("${mongo.pool.max-size:100}") int maxPoolSize,
+            @Value("${mongo.pool.min-size:0}") int minPoolSize,
+            @Value("${mongo.pool.max-connecting:2}") int maxConnecting,
+            @Value("${mongo.pool.max-wait-time:PT2M}") Duration maxWaitTime,
+            @Value("${mongo.pool.max-idle-time:PT0S}") Duration maxIdleTime,
+            @Value("${mongo.socket.connect-timeout:PT10S}") Duration connectTimeout,
+            @Value("${mongo.socket.read-timeout:PT0S}") Duration readTimeout,
+            @Value("${mongo.server-selection-timeout:PT30S}") Duration serverSelectionTimeout,
+            @Value("${mongo.compressors:}") List<String> compressors,
+            @Value("${mongo.read-preference:primary}") String readPreference) {
+        // Defaults above are the driver's own; a zero duration means no limit
+        List<MongoCompressor> compressorList = compressors(compressors);
+        ReadPreference preference = ReadPreference.valueOf(readPreference);
+        return builder -> builder
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(maxPoolSize)
+                        .minSize(minPoolSize)
+                        .maxConnecting(maxConnecting)
+                        .maxWaitTime(maxWaitTime.toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(maxIdleTime.toMillis(), TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout((int) connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout((int) readTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(serverSelectionTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .compressorList(compressorList)
+                .readPreference(preference);
+    }
+
+    // Listed in order of preference; the server picks the first one it also supports
+    static List<MongoCompressor> compressors(List<String> names) {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        for (String name : names) {
+            switch (name.trim().toLowerCase()) {
+                case "" -> {
+                }
+                case "zstd" -> compressors.add(MongoCompressor.createZstdCompressor());
+                case "snappy" -> compressors.add(MongoCompressor.createSnappyCompressor());
+                case "zlib" -> compressors.add(MongoCompressor.createZlibCompressor());
+                default -> throw new IllegalArgumentException("Unsupported MongoDB compressor: " + name);
+            }
+        }
+        return compressors;
+    }
+}
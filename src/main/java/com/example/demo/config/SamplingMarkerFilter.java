@@ -0,0 +1,59 @@
+package com.example.demo.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback filter keeping one in {@code rate} events that carry {@code marker}, used in {@code logback-spring.xml}
+ * to sample the per-request events of the dog services. Events below WARN only; everything else passes.
+ * Counting instead of a random draw keeps the kept share exact and costs a single atomic increment.
+ */
+public class SamplingMarkerFilter extends Filter<ILoggingEvent> {
+
+    private final AtomicLong seen = new AtomicLong();
+    private String marker;
+    private int rate = 1;
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (!isStarted() || rate <= 1 || event.getLevel().isGreaterOrEqual(Level.WARN)
+                || !hasMarker(event)) {
+            return FilterReply.NEUTRAL;
+        }
+        return seen.getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean hasMarker(ILoggingEvent event) {
+        if (event.getMarkerList() == null) {
+            return false;
+        }
+        for (Marker candidate : event.getMarkerList()) {
+            if (candidate.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void start() {
+        if (marker == null) {
+            addError("No marker set for " + getName());
+            return;
+        }
+        super.start();
+    }
+
+    public void setMarker(String marker) {
+        this.marker = marker;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+}
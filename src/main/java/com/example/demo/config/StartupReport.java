@@ -0,0 +1,51 @@
+package com.example.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Logs how long the application took to become ready and its resident memory at that point, the two numbers
+ * compared across the plain, AOT/CDS and native builds by {@code compareStartup.sh}. The time is counted from
+ * process start, so it includes JVM startup and class loading that Spring's own "Started in" message leaves out.
+ */
+@Component
+@Slf4j
+public class StartupReport {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report(ApplicationReadyEvent event) {
+        Duration sinceProcessStart = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()))
+                .orElse(event.getTimeTaken());
+        long rssKilobytes = residentSetKilobytes();
+        log.info("Ready in {} ms since process start ({} ms in Spring), RSS {}",
+                sinceProcessStart.toMillis(), event.getTimeTaken().toMillis(),
+                rssKilobytes < 0 ? "unknown" : (rssKilobytes / 1024) + " MB");
+    }
+
+    // Linux only, like the deployments; -1 elsewhere
+    static long residentSetKilobytes() {
+        try {
+            List<String> lines = Files.readAllLines(PROC_STATUS);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("Could not read the resident set size: {}", e.toString());
+        }
+        return -1;
+    }
+}
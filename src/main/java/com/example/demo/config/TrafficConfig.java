@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import com.example.demo.controllers.ReactiveTrafficFilter;
+import com.example.demo.controllers.TrafficFilter;
+import com.example.demo.services.TrafficGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Rate limits and bulkheads for the dog endpoints ({@code dogs.traffic.*}), on whichever web stack is active.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dogs.traffic.enabled", havingValue = "true")
+@EnableConfigurationProperties(TrafficProperties.class)
+public class TrafficConfig {
+
+    @Bean
+    public TrafficGuard trafficGuard(TrafficProperties properties, MeterRegistry registry) {
+        return new TrafficGuard(properties, registry);
+    }
+
+    // Ahead of everything else, so refused requests cost as little as possible
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<TrafficFilter> trafficFilter(TrafficGuard trafficGuard, TrafficProperties properties) {
+        FilterRegistrationBean<TrafficFilter> registration =
+                new FilterRegistrationBean<>(new TrafficFilter(trafficGuard, properties));
+        registration.addUrlPatterns("/v1/examples/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveTrafficFilter reactiveTrafficFilter(TrafficGuard trafficGuard, TrafficProperties properties) {
+        return new ReactiveTrafficFilter(trafficGuard, properties);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.config;
+
+import com.example.demo.services.EndpointGroup;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@code dogs.traffic.*}: rate limits and concurrency bulkheads per {@link EndpointGroup}.
+ * Every limit is optional; a group without an entry is not limited at all.
+ *
+ * @param clientHeader   request header identifying the client, only honored from {@code trustedProxies}
+ * @param trustedProxies remote addresses allowed to set {@code clientHeader}, e.g. the load balancer in front;
+ *                       every other request is limited by its remote address, since clients choose the header
+ * @param maxClients     clients whose rate limit state is kept per group, least recently seen are dropped first
+ */
+@ConfigurationProperties(prefix = "dogs.traffic")
+public record TrafficProperties(String clientHeader, Set<String> trustedProxies, Integer maxClients,
+                                Map<EndpointGroup, Limits> endpoints) {
+
+    public TrafficProperties {
+        trustedProxies = trustedProxies == null ? Set.of() : trustedProxies;
+        maxClients = maxClients == null ? 100_000 : maxClients;
+        endpoints = endpoints == null ? Map.of() : endpoints;
+    }
+
+    /**
+     * The client a request is limited as: the {@code clientHeader} value when the request came from one of the
+     * {@code trustedProxies} and has it, otherwise the remote address.
+     */
+    public String client(String remoteAddress, UnaryOperator<String> headers) {
+        if (clientHeader != null && remoteAddress != null && trustedProxies.contains(remoteAddress)) {
+            String client = headers.apply(clientHeader);
+            if (client != null && !client.isBlank()) {
+                return client;
+            }
+        }
+        return remoteAddress == null ? "unknown" : remoteAddress;
+    }
+
+    /**
+     * @param rate           requests per second across all clients
+     * @param burst          requests accepted at once before {@code rate} applies
+     * @param perClientRate  requests per second of a single client
+     * @param perClientBurst requests a single client may send at once before {@code perClientRate} applies
+     * @param maxConcurrent  requests in progress at the same time
+     */
+    public record Limits(Double rate, Integer burst, Double perClientRate, Integer perClientBurst,
+                         Integer maxConcurrent) {
+    }
+}
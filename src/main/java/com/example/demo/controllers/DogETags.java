@@ -0,0 +1,50 @@
+package com.example.demo.controllers;
+
+import com.example.demo.models.DogResponseDto;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Strong ETags for single dogs, {@code "<id>-<version>"}, shared by both controllers, and the
+ * {@code If-None-Match} check of the collection ETag.
+ */
+final class DogETags {
+
+    private DogETags() {
+    }
+
+    static String of(DogResponseDto dog) {
+        return "\"" + dog.getId() + "-" + (dog.getVersion() == null ? 0 : dog.getVersion()) + "\"";
+    }
+
+    /**
+     * The version an {@code If-Match} header requires, or {@code null} for {@code *}.
+     * Anything that is not a current-format ETag of this dog can never match and fails with 412.
+     */
+    static Integer expectedVersion(String id, String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + id + "-";
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                return Integer.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Fall through to the precondition failure below
+            }
+        }
+        throw new ResponseStatusException(
+                HttpStatus.PRECONDITION_FAILED, "If-Match does not match any version of dog " + id);
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header lists {@code etag} or is {@code *}, compared weakly as GETs are.
+     */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        ETag current = ETag.create(etag);
+        return ETag.parse(ifNoneMatch).stream()
+                .anyMatch(candidate -> candidate.isWildcard() || candidate.compare(current, false));
+    }
+}
@@ -1,44 +1,202 @@
 package com.example.demo.controllers;
 
+import com.example.demo.config.BinaryFormatsConfig;
+import com.example.demo.models.DogBatchResponseDto;
+import com.example.demo.models.DogBulkResponseDto;
+import com.example.demo.models.DogBulkUpdateItemDto;
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogPageResponseDto;
 import com.example.demo.models.DogRequestDto;
 import com.example.demo.models.DogResponseDto;
+import com.example.demo.models.DogSearchResponseDto;
+import com.example.demo.services.DogBulkService;
+import com.example.demo.services.DogChangeHub;
+import com.example.demo.services.DogWriteBehindQueue;
 import com.example.demo.services.ExampleService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/v1/examples")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Tag(name = "Dog Management", description = "API endpoints for managing dogs")
 public class ExampleController {
 
     private final ExampleService exampleService;
+    private final DogBulkService dogBulkService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<DogChangeHub> dogChangeHub;
+    private final ObjectProvider<DogWriteBehindQueue> dogWriteBehindQueue;
+
+    // Same settings as the JSON mapper, created on the first Smile stream
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final ObjectMapper smileObjectMapper = objectMapper.copyWith(new SmileFactory());
 
     @GetMapping("/dogs")
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get all dogs", description = "Retrieves a list of all dogs")
-    public List<DogResponseDto> getAllDogs() {
-        return exampleService.getAllDogsAsDto();
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Dogs returned"),
+            @ApiResponse(responseCode = "304", description = "Collection unchanged since the given ETag")
+    })
+    public ResponseEntity<List<DogResponseDto>> getAllDogs(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            // Only the collection version is read to answer an unchanged collection
+            String etag = exampleService.getDogCollectionVersion().etag();
+            if (DogETags.matchesAny(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+        // The version read together with these dogs, which may be newer than the one above
+        ExampleService.AllDogs all = exampleService.getAllDogsWithVersion();
+        return ResponseEntity.ok()
+                .eTag(all.version().etag())
+                .body(all.dogs());
     }
 
-    @GetMapping("/dogs/{id}")
+    @GetMapping(value = "/dogs", params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get a page of dogs",
+            description = "Retrieves dogs ordered by ID, starting after the given cursor")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public DogPageResponseDto getDogPage(
+            @Parameter(description = "Maximum number of dogs to return") @RequestParam int limit,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String after) {
+        return exampleService.getDogPageAsDto(after, limit);
+    }
+
+    @GetMapping("/dogs/search")
     @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search dogs",
+            description = "Finds dogs by breed and/or name prefix using indexes, optionally returning only the count")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Matching dogs or their count"),
+            @ApiResponse(responseCode = "400", description = "No filter given or invalid limit")
+    })
+    public DogSearchResponseDto searchDogs(
+            @Parameter(description = "Exact breed") @RequestParam(required = false) String breed,
+            @Parameter(description = "Case-sensitive name prefix") @RequestParam(required = false) String name,
+            @Parameter(description = "Maximum number of dogs to return") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "Only count the matching dogs") @RequestParam(defaultValue = "false") boolean count) {
+        return exampleService.searchDogsAsDto(breed, name, limit, count);
+    }
+
+    @GetMapping("/dogs/batch")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get dogs by IDs",
+            description = "Retrieves several dogs in one query, in request order, marking the IDs that were not found")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "One item per requested ID"),
+            @ApiResponse(responseCode = "400", description = "No IDs, a blank ID or more than dogs.batch.max-ids IDs")
+    })
+    public DogBatchResponseDto getDogsByIds(
+            @Parameter(description = "Dog IDs, comma-separated or repeated") @RequestParam List<String> ids) {
+        return exampleService.getDogsByIdsAsDto(ids);
+    }
+
+    @GetMapping(value = "/dogs/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, BinaryFormatsConfig.SMILE_STREAM_VALUE})
+    @Operation(summary = "Stream all dogs",
+            description = "Streams every dog as newline-delimited JSON or consecutive Smile values straight from a database cursor")
+    public ResponseEntity<StreamingResponseBody> streamAllDogs(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // NDJSON unless Smile is asked for explicitly
+        if (accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(BinaryFormatsConfig.SMILE_STREAM::equalsTypeAndSubtype)) {
+            return streamAllDogs(getSmileObjectMapper(), BinaryFormatsConfig.SMILE_STREAM, false);
+        }
+        return streamAllDogs(objectMapper, MediaType.APPLICATION_NDJSON, true);
+    }
+
+    @GetMapping(value = "/dogs/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to dog changes",
+            description = "Pushes inserts, updates and deletes as Server-Sent Events, resuming after Last-Event-ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "404", description = "Change notifications are disabled"),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers")
+    })
+    // Events are serialized by the emitter rather than as the return type, so AOT cannot infer their binding
+    @RegisterReflectionForBinding(DogChangeEventDto.class)
+    public SseEmitter streamDogChanges(
+            @Parameter(description = "Id of the last event received before reconnecting")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        DogChangeHub hub = dogChangeHub.getIfAvailable();
+        if (hub == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Change notifications are disabled");
+        }
+        // Timeout from spring.mvc.async.request-timeout, clients reconnect with Last-Event-ID
+        SseEmitter emitter = new SseEmitter();
+        DogChangeHub.Registration registration = hub.subscribe(lastEventId, new DogChangeHub.Listener() {
+            @Override
+            public void send(String eventId, DogChangeEventDto event) throws IOException {
+                SseEmitter.SseEventBuilder builder = SseEmitter.event()
+                        .name(event.getType().name().toLowerCase(Locale.ROOT))
+                        .data(event, MediaType.APPLICATION_JSON);
+                emitter.send(eventId == null ? builder : builder.id(eventId));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(registration::cancel);
+        emitter.onTimeout(registration::cancel);
+        emitter.onError(error -> registration.cancel());
+        return emitter;
+    }
+
+    @GetMapping("/dogs/{id}")
     @Operation(summary = "Get dog by ID", description = "Retrieves a specific dog")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Dog found"),
+            @ApiResponse(responseCode = "304", description = "Dog unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "Dog not found")
     })
-    public DogResponseDto getDogById(@Parameter(description = "Dog ID") @PathVariable String id) {
-        return exampleService.getDogByIdAsDto(id);
+    public ResponseEntity<DogResponseDto> getDogById(@Parameter(description = "Dog ID") @PathVariable String id) {
+        // A matching If-None-Match is answered with 304 before the body is serialized
+        DogResponseDto dog = exampleService.getDogByIdAsDto(id);
+        return ResponseEntity.ok()
+                .eTag(DogETags.of(dog))
+                .body(dog);
     }
 
     @PostMapping("/dogs")
@@ -52,15 +210,50 @@ public class ExampleController {
         return exampleService.createDogFromDto(request);
     }
 
+    @PostMapping(value = "/dogs", params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Create a new dog asynchronously",
+            description = "Queues the dog for a batched write and returns its pre-assigned ID without waiting for MongoDB")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Dog queued"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "404", description = "Asynchronous creates are disabled"),
+            @ApiResponse(responseCode = "429", description = "Write-behind queue is full"),
+            @ApiResponse(responseCode = "503", description = "Shutting down")
+    })
+    public DogResponseDto createDogAsync(@Valid @RequestBody DogRequestDto request) {
+        DogWriteBehindQueue queue = dogWriteBehindQueue.getIfAvailable();
+        if (queue == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Asynchronous creates are disabled");
+        }
+        return queue.enqueue(request);
+    }
+
     @PutMapping("/dogs/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Update an existing dog")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Dog updated"),
-            @ApiResponse(responseCode = "404", description = "Dog not found")
+            @ApiResponse(responseCode = "404", description = "Dog not found"),
+            @ApiResponse(responseCode = "412", description = "Dog changed since the ETag given in If-Match")
     })
-    public DogResponseDto updateDog(@PathVariable String id, @Valid @RequestBody DogRequestDto request) {
-        return exampleService.updateDogFromDto(id, request);
+    public ResponseEntity<DogResponseDto> updateDog(
+            @PathVariable String id,
+            @Parameter(description = "ETag of the version being replaced")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody DogRequestDto request) {
+        DogResponseDto updated;
+        if (ifMatch == null) {
+            updated = exampleService.updateDogFromDto(id, request);
+        } else {
+            try {
+                updated = exampleService.updateDogFromDto(id, request, DogETags.expectedVersion(id, ifMatch));
+            } catch (OptimisticLockingFailureException e) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+            }
+        }
+        return ResponseEntity.ok()
+                .eTag(DogETags.of(updated))
+                .body(updated);
     }
 
     @DeleteMapping("/dogs/{id}")
@@ -73,4 +266,74 @@ public class ExampleController {
     public void deleteDog(@PathVariable String id) {
         exampleService.deleteDogById(id);
     }
+
+    @PostMapping("/dogs/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Create dogs in bulk",
+            description = "Creates many dogs in chunked bulk writes and reports a result per item")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Bulk request processed"),
+            @ApiResponse(responseCode = "400", description = "Too many items")
+    })
+    public DogBulkResponseDto createDogs(
+            @RequestBody List<DogRequestDto> requests,
+            @Parameter(description = "Stop at the first failing item") @RequestParam(defaultValue = "true") boolean ordered) {
+        return dogBulkService.createDogs(requests, ordered);
+    }
+
+    @PutMapping("/dogs/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Update dogs in bulk",
+            description = "Updates many dogs in chunked bulk writes and reports a result per item")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Bulk request processed"),
+            @ApiResponse(responseCode = "400", description = "Too many items")
+    })
+    public DogBulkResponseDto updateDogs(
+            @RequestBody List<DogBulkUpdateItemDto> items,
+            @Parameter(description = "Stop at the first failing item") @RequestParam(defaultValue = "true") boolean ordered) {
+        return dogBulkService.updateDogs(items, ordered);
+    }
+
+    @DeleteMapping("/dogs/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Delete dogs in bulk",
+            description = "Deletes many dogs by ID in chunked bulk writes and reports a result per item")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Bulk request processed"),
+            @ApiResponse(responseCode = "400", description = "Too many items")
+    })
+    public DogBulkResponseDto deleteDogs(
+            @RequestBody List<String> ids,
+            @Parameter(description = "Stop at the first failing item") @RequestParam(defaultValue = "true") boolean ordered) {
+        return dogBulkService.deleteDogs(ids, ordered);
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamAllDogs(ObjectMapper mapper, MediaType contentType,
+                                                                boolean newlineDelimited) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = mapper.createGenerator(outputStream)) {
+                if (newlineDelimited) {
+                    // No space between root values, each JSON document gets a newline instead. Smile values
+                    // delimit themselves and its generator does not support a separator
+                    generator.setRootValueSeparator(null);
+                }
+                exampleService.streamAllDogsAsDto(dog -> write(generator, dog, newlineDelimited));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(body);
+    }
+
+    private static void write(JsonGenerator generator, DogResponseDto dog, boolean newlineDelimited) {
+        try {
+            generator.writePOJO(dog);
+            if (newlineDelimited) {
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,280 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.BinaryFormatsConfig;
+import com.example.demo.models.DogBatchResponseDto;
+import com.example.demo.models.DogBulkResponseDto;
+import com.example.demo.models.DogBulkUpdateItemDto;
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogPageResponseDto;
+import com.example.demo.models.DogRequestDto;
+import com.example.demo.models.DogResponseDto;
+import com.example.demo.models.DogSearchResponseDto;
+import com.example.demo.services.DogBulkService;
+import com.example.demo.services.DogChangeHub;
+import com.example.demo.services.DogWriteBehindQueue;
+import com.example.demo.services.ReactiveExampleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * WebFlux implementation of the {@code /v1/examples} contract served by {@link ExampleController}.
+ * Only one of the two is active, depending on {@code spring.main.web-application-type}.
+ */
+@RestController
+@RequestMapping("/v1/examples")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Tag(name = "Dog Management", description = "API endpoints for managing dogs")
+public class ReactiveExampleController {
+
+    private final ReactiveExampleService exampleService;
+    private final DogBulkService dogBulkService;
+    private final ObjectProvider<DogChangeHub> dogChangeHub;
+    private final ObjectProvider<DogWriteBehindQueue> dogWriteBehindQueue;
+
+    @GetMapping("/dogs")
+    @Operation(summary = "Get all dogs", description = "Retrieves a list of all dogs")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Dogs returned"),
+            @ApiResponse(responseCode = "304", description = "Collection unchanged since the given ETag")
+    })
+    public Mono<ResponseEntity<Flux<DogResponseDto>>> getAllDogs() {
+        // The version is read before the dogs are streamed. WebFlux answers a matching If-None-Match
+        // with a 304 without subscribing to the dogs at all
+        return exampleService.getDogCollectionVersion()
+                .map(version -> ResponseEntity.ok()
+                        .eTag(version.etag())
+                        .body(Flux.defer(exampleService::getAllDogsAsDto)));
+    }
+
+    @GetMapping(value = "/dogs", params = "limit")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get a page of dogs",
+            description = "Retrieves dogs ordered by ID, starting after the given cursor")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit")
+    })
+    public Mono<DogPageResponseDto> getDogPage(
+            @Parameter(description = "Maximum number of dogs to return") @RequestParam int limit,
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String after) {
+        return exampleService.getDogPageAsDto(after, limit);
+    }
+
+    @GetMapping("/dogs/search")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Search dogs",
+            description = "Finds dogs by breed and/or name prefix using indexes, optionally returning only the count")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Matching dogs or their count"),
+            @ApiResponse(responseCode = "400", description = "No filter given or invalid limit")
+    })
+    public Mono<DogSearchResponseDto> searchDogs(
+            @Parameter(description = "Exact breed") @RequestParam(required = false) String breed,
+            @Parameter(description = "Case-sensitive name prefix") @RequestParam(required = false) String name,
+            @Parameter(description = "Maximum number of dogs to return") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "Only count the matching dogs") @RequestParam(defaultValue = "false") boolean count) {
+        return exampleService.searchDogsAsDto(breed, name, limit, count);
+    }
+
+    @GetMapping("/dogs/batch")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get dogs by IDs",
+            description = "Retrieves several dogs in one query, in request order, marking the IDs that were not found")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "One item per requested ID"),
+            @ApiResponse(responseCode = "400", description = "No IDs, a blank ID or more than dogs.batch.max-ids IDs")
+    })
+    public Mono<DogBatchResponseDto> getDogsByIds(
+            @Parameter(description = "Dog IDs, comma-separated or repeated") @RequestParam List<String> ids) {
+        return exampleService.getDogsByIdsAsDto(ids);
+    }
+
+    @GetMapping(value = "/dogs/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, BinaryFormatsConfig.SMILE_STREAM_VALUE})
+    @Operation(summary = "Stream all dogs",
+            description = "Streams every dog as newline-delimited JSON or consecutive Smile values straight from a database cursor")
+    public Flux<DogResponseDto> streamAllDogs() {
+        return exampleService.getAllDogsAsDto();
+    }
+
+    @GetMapping(value = "/dogs/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to dog changes",
+            description = "Pushes inserts, updates and deletes as Server-Sent Events, resuming after Last-Event-ID")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Event stream opened"),
+            @ApiResponse(responseCode = "404", description = "Change notifications are disabled"),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers")
+    })
+    public Flux<ServerSentEvent<DogChangeEventDto>> streamDogChanges(
+            @Parameter(description = "Id of the last event received before reconnecting")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        DogChangeHub hub = dogChangeHub.getIfAvailable();
+        if (hub == null) {
+            return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Change notifications are disabled"));
+        }
+        return Flux.<ServerSentEvent<DogChangeEventDto>>create(sink -> {
+                    DogChangeHub.Registration registration = hub.subscribe(lastEventId, new DogChangeHub.Listener() {
+                        @Override
+                        public void send(String eventId, DogChangeEventDto event) {
+                            sink.next(ServerSentEvent.builder(event)
+                                    .id(eventId)
+                                    .event(event.getType().name().toLowerCase(Locale.ROOT))
+                                    .build());
+                        }
+
+                        @Override
+                        public void heartbeat() {
+                            sink.next(ServerSentEvent.<DogChangeEventDto>builder().comment("heartbeat").build());
+                        }
+
+                        @Override
+                        public void close() {
+                            sink.complete();
+                        }
+                    });
+                    sink.onDispose(registration::cancel);
+                }, FluxSink.OverflowStrategy.ERROR)
+                // Bounded like the hub's per-subscriber queue: a client that stops reading is disconnected
+                .onBackpressureBuffer(hub.getBufferSize());
+    }
+
+    @GetMapping("/dogs/{id}")
+    @Operation(summary = "Get dog by ID", description = "Retrieves a specific dog")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Dog found"),
+            @ApiResponse(responseCode = "304", description = "Dog unchanged since the given ETag"),
+            @ApiResponse(responseCode = "404", description = "Dog not found")
+    })
+    public Mono<ResponseEntity<DogResponseDto>> getDogById(@Parameter(description = "Dog ID") @PathVariable String id) {
+        return exampleService.getDogByIdAsDto(id)
+                .map(dog -> ResponseEntity.ok()
+                        .eTag(DogETags.of(dog))
+                        .body(dog));
+    }
+
+    @PostMapping("/dogs")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create a new dog")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Dog created"),
+            @ApiResponse(responseCode = "400", description = "Invalid input")
+    })
+    public Mono<DogResponseDto> createDog(@Valid @RequestBody DogRequestDto request) {
+        return exampleService.createDogFromDto(request);
+    }
+
+    @PostMapping(value = "/dogs", params = "async=true")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary = "Create a new dog asynchronously",
+            description = "Queues the dog for a batched write and returns its pre-assigned ID without waiting for MongoDB")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Dog queued"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "404", description = "Asynchronous creates are disabled"),
+            @ApiResponse(responseCode = "429", description = "Write-behind queue is full"),
+            @ApiResponse(responseCode = "503", description = "Shutting down")
+    })
+    public Mono<DogResponseDto> createDogAsync(@Valid @RequestBody DogRequestDto request) {
+        DogWriteBehindQueue queue = dogWriteBehindQueue.getIfAvailable();
+        if (queue == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Asynchronous creates are disabled"));
+        }
+        Mono<DogResponseDto> enqueued = Mono.fromCallable(() -> queue.enqueue(request));
+        // Without the write-ahead log this only offers to an in-memory queue, safe on the event loop;
+        // with it every dog is appended to a memory-mapped file first, which may force or rotate segments
+        return queue.isWriteAheadLogged()
+                ? enqueued.subscribeOn(Schedulers.boundedElastic())
+                : enqueued;
+    }
+
+    @PutMapping("/dogs/{id}")
+    @Operation(summary = "Update an existing dog")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Dog updated"),
+            @ApiResponse(responseCode = "404", description = "Dog not found"),
+            @ApiResponse(responseCode = "412", description = "Dog changed since the ETag given in If-Match")
+    })
+    public Mono<ResponseEntity<DogResponseDto>> updateDog(
+            @PathVariable String id,
+            @Parameter(description = "ETag of the version being replaced")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody DogRequestDto request) {
+        Mono<DogResponseDto> updated = ifMatch == null
+                ? exampleService.updateDogFromDto(id, request)
+                : Mono.defer(() -> exampleService.updateDogFromDto(id, request, DogETags.expectedVersion(id, ifMatch)))
+                        .onErrorMap(OptimisticLockingFailureException.class,
+                                e -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage()));
+        return updated.map(dog -> ResponseEntity.ok()
+                .eTag(DogETags.of(dog))
+                .body(dog));
+    }
+
+    @DeleteMapping("/dogs/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Delete a dog")
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Dog deleted"),
+            @ApiResponse(responseCode = "404", description = "Dog not found")
+    })
+    public Mono<Void> deleteDog(@PathVariable String id) {
+        return exampleService.deleteDogById(id);
+    }
+
+    // Bulk writes reuse the blocking bulkOps implementation off the event loop
+    @PostMapping("/dogs/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Create dogs in bulk",
+            description = "Creates many dogs in chunked bulk writes and reports a result per item")
+    public Mono<DogBulkResponseDto> createDogs(
+            @RequestBody List<DogRequestDto> requests,
+            @Parameter(description = "Stop at the first failing item") @RequestParam(defaultValue = "true") boolean ordered) {
+        return Mono.fromCallable(() -> dogBulkService.createDogs(requests, ordered))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PutMapping("/dogs/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Update dogs in bulk",
+            description = "Updates many dogs in chunked bulk writes and reports a result per item")
+    public Mono<DogBulkResponseDto> updateDogs(
+            @RequestBody List<DogBulkUpdateItemDto> items,
+            @Parameter(description = "Stop at the first failing item") @RequestParam(defaultValue = "true") boolean ordered) {
+        return Mono.fromCallable(() -> dogBulkService.updateDogs(items, ordered))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @DeleteMapping("/dogs/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Delete dogs in bulk",
+            description = "Deletes many dogs by ID in chunked bulk writes and reports a result per item")
+    public Mono<DogBulkResponseDto> deleteDogs(
+            @RequestBody List<String> ids,
+            @Parameter(description = "Stop at the first failing item") @RequestParam(defaultValue = "true") boolean ordered) {
+        return Mono.fromCallable(() -> dogBulkService.deleteDogs(ids, ordered))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
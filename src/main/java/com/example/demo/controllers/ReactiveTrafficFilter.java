@@ -0,0 +1,60 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.TrafficProperties;
+import com.example.demo.services.EndpointGroup;
+import com.example.demo.services.TrafficGuard;
+import com.example.demo.services.TrafficRejectedException;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * WebFlux counterpart of {@link TrafficFilter}: the bulkhead permit is held until the response completes.
+ */
+public class ReactiveTrafficFilter implements WebFilter {
+
+    private final TrafficGuard trafficGuard;
+    private final TrafficProperties properties;
+
+    public ReactiveTrafficFilter(TrafficGuard trafficGuard, TrafficProperties properties) {
+        this.trafficGuard = trafficGuard;
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        EndpointGroup group = EndpointGroup.of(request.getMethod().name(),
+                request.getPath().pathWithinApplication().value(), request.getQueryParams().containsKey("limit"));
+        if (group == null) {
+            return chain.filter(exchange);
+        }
+        TrafficGuard.Permit permit;
+        try {
+            permit = trafficGuard.admit(group,
+                    properties.client(remoteAddress(request), request.getHeaders()::getFirst));
+        } catch (TrafficRejectedException e) {
+            // Answered here like the Servlet filter does, the WebFlux error handling would drop Retry-After
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(e.getStatusCode());
+            response.getHeaders().addAll(e.getHeaders());
+            return response.setComplete();
+        }
+        return chain.filter(exchange).doFinally(signal -> permit.release());
+    }
+
+    // The IP address, as the Servlet stack reports it
+    private static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return null;
+        }
+        return remoteAddress.getAddress() == null ? remoteAddress.getHostString()
+                : remoteAddress.getAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.TrafficProperties;
+import com.example.demo.services.EndpointGroup;
+import com.example.demo.services.TrafficGuard;
+import com.example.demo.services.TrafficRejectedException;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link TrafficGuard} to the dog endpoints on the Servlet stack. Streaming responses keep their
+ * bulkhead permit until the asynchronous request completes.
+ */
+public class TrafficFilter extends OncePerRequestFilter {
+
+    private final TrafficGuard trafficGuard;
+    private final TrafficProperties properties;
+
+    public TrafficFilter(TrafficGuard trafficGuard, TrafficProperties properties) {
+        this.trafficGuard = trafficGuard;
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        EndpointGroup group = EndpointGroup.of(request.getMethod(), path, request.getParameter("limit") != null);
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        TrafficGuard.Permit permit;
+        try {
+            permit = trafficGuard.admit(group, properties.client(request.getRemoteAddr(), request::getHeader));
+        } catch (TrafficRejectedException e) {
+            e.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            response.sendError(e.getStatusCode().value(), e.getReason());
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(permit));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permit.release();
+            }
+        }
+    }
+
+    private record ReleasingListener(TrafficGuard.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.models;
+
+public enum BulkItemStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    VERSION_CONFLICT,
+    INVALID,
+    FAILED,
+    // Not attempted because an earlier item failed in an ordered request
+    SKIPPED
+}
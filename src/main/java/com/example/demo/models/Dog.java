@@ -8,10 +8,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
 @Document(collection = "dogs")
+// Serves breed lookups and breed + name prefix searches, sorted by name (see DogSearchRepository)
+@CompoundIndex(name = "breed_name", def = "{'breed': 1, 'name': 1}")
 @Data
 @Builder
 @NoArgsConstructor
@@ -34,5 +41,12 @@ public class Dog {
     @NotBlank(message = "Name is required")
     @Size(min = 2, max = 30, message = "Name must be between 2 and 30 characters")
     @Schema(example = "Buddy")
+    // Name prefix searches without a breed
+    @Indexed(name = "name")
     private String name;
+
+    // Set by auditing on save and by $currentDate on template updates
+    @LastModifiedDate
+    @Schema(description = "Time of the last write")
+    private Instant lastModified;
 }
\ No newline at end of file
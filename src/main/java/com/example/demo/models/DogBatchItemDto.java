@@ -0,0 +1,22 @@
+package com.example.demo.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DogBatchItemDto {
+
+    // Requested id, in the position it was requested
+    private String id;
+    private boolean found;
+
+    // Omitted when not found
+    private DogResponseDto dog;
+}
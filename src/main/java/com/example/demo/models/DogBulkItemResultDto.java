@@ -0,0 +1,21 @@
+package com.example.demo.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DogBulkItemResultDto {
+
+    // Position of the item in the request array
+    private int index;
+    private String id;
+    private BulkItemStatus status;
+    private String error;
+}
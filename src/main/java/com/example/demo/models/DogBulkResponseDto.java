@@ -0,0 +1,18 @@
+package com.example.demo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DogBulkResponseDto {
+
+    // One entry per request item, in request order
+    private List<DogBulkItemResultDto> results;
+}
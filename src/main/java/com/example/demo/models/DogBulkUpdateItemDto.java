@@ -0,0 +1,29 @@
+package com.example.demo.models;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DogBulkUpdateItemDto {
+
+    @NotBlank(message = "Id is required")
+    private String id;
+
+    // Optional expected version; when set the update only applies if it still matches
+    private Integer version;
+
+    @NotBlank(message = "Name is required")
+    @Size(min = 1, max = 100, message = "Name must be between 1 and 100 characters")
+    private String name;
+
+    @NotBlank(message = "Breed is required")
+    @Size(min = 1, max = 50, message = "Breed must be between 1 and 50 characters")
+    private String breed;
+}
@@ -0,0 +1,21 @@
+package com.example.demo.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DogChangeEventDto {
+
+    private DogChangeType type;
+    private String id;
+
+    // State after the change; omitted for deletes and resets
+    private DogResponseDto dog;
+}
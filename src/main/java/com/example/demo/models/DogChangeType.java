@@ -0,0 +1,9 @@
+package com.example.demo.models;
+
+public enum DogChangeType {
+    INSERT,
+    UPDATE,
+    DELETE,
+    // Changes since the client's Last-Event-ID can no longer be replayed; reload and keep listening
+    RESET
+}
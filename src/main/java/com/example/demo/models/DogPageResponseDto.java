@@ -0,0 +1,21 @@
+package com.example.demo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DogPageResponseDto {
+
+    private List<DogResponseDto> items;
+
+    // Id of the last dog in this page; pass it back as "after" to fetch the next page.
+    // Null when there are no more dogs to read.
+    private String nextCursor;
+}
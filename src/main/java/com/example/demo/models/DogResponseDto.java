@@ -14,4 +14,7 @@ public class DogResponseDto {
     private String id;
     private String name;
     private String breed;
+
+    // Dog.version, the dog's ETag is derived from it
+    private Integer version;
 }
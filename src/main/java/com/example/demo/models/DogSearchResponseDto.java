@@ -0,0 +1,23 @@
+package com.example.demo.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DogSearchResponseDto {
+
+    // Matching dogs ordered by name; omitted in count mode
+    private List<DogResponseDto> items;
+
+    // Total number of matching dogs; only set in count mode
+    private Long count;
+}
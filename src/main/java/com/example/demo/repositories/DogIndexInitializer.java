@@ -0,0 +1,35 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Dog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared on {@link Dog} at startup. {@code spring.data.mongodb.auto-index-creation}
+ * only covers the local and test profiles, this makes sure every environment gets them.
+ * Index creation is idempotent, so existing indexes are left untouched.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DogIndexInitializer {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOperations = mongoTemplate.indexOps(Dog.class);
+        resolver.resolveIndexFor(Dog.class).forEach(index -> {
+            log.info("Ensuring index {} on dogs", index.getIndexOptions().get("name"));
+            indexOperations.ensureIndex(index);
+        });
+    }
+}
@@ -1,10 +1,32 @@
 package com.example.demo.repositories;
 
 import com.example.demo.models.Dog;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.ReadPreference;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
-public interface DogRepository extends MongoRepository<Dog, String> {
-}
+public interface DogRepository extends MongoRepository<Dog, String>, DogSearchRepository {
+
+    // List reads tolerate replication lag, so they are served by secondaries when available
+    // to keep that load off the primary. Lookups by id and writes stay on the primary.
+    @ReadPreference("secondaryPreferred")
+    List<Dog> findAllBy();
 
+    // Keyset pagination on _id: first page and every page after a given cursor
+    @ReadPreference("secondaryPreferred")
+    List<Dog> findAllByOrderByIdAsc(Limit limit);
+
+    @ReadPreference("secondaryPreferred")
+    List<Dog> findByIdGreaterThanOrderByIdAsc(String after, Limit limit);
+
+    // Backed by a server-side cursor; callers must close the stream
+    @Meta(cursorBatchSize = 1000)
+    @ReadPreference("secondaryPreferred")
+    Stream<Dog> streamAllByOrderByIdAsc();
+}
@@ -0,0 +1,51 @@
+package com.example.demo.repositories;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Queries shared by the blocking and reactive search repositories.
+ */
+final class DogSearchQueries {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private DogSearchQueries() {
+    }
+
+    static Query filter(String breed, String namePrefix) {
+        Query query = new Query();
+        if (breed != null) {
+            query.addCriteria(where("breed").is(breed));
+        }
+        if (namePrefix != null) {
+            query.addCriteria(where("name").regex("^" + escape(namePrefix)));
+        }
+        return query;
+    }
+
+    static Query search(String breed, String namePrefix, Limit limit) {
+        Query query = filter(breed, namePrefix)
+                .with(Sort.by("name"))
+                .limit(limit);
+        query.fields().include("name", "breed", "version");
+        return query;
+    }
+
+    // Escapes metacharacters one by one instead of wrapping in \Q...\E, so MongoDB still sees
+    // a literal anchored prefix it can turn into index bounds
+    static String escape(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length() + 8);
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
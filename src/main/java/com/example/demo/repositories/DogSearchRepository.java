@@ -0,0 +1,19 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Dog;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+/**
+ * Search by breed and/or name prefix, backed by the indexes declared on {@link Dog}.
+ * A {@code null} filter is ignored. Name prefixes are matched case-sensitively so the
+ * query stays an index range scan.
+ */
+public interface DogSearchRepository {
+
+    // Ordered by name, with only the fields of DogResponseDto loaded
+    List<Dog> searchByBreedAndNamePrefix(String breed, String namePrefix, Limit limit);
+
+    long countByBreedAndNamePrefix(String breed, String namePrefix);
+}
@@ -0,0 +1,24 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Dog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DogSearchRepositoryImpl implements DogSearchRepository {
+
+    private final MongoOperations mongoOperations;
+
+    @Override
+    public List<Dog> searchByBreedAndNamePrefix(String breed, String namePrefix, Limit limit) {
+        return mongoOperations.find(DogSearchQueries.search(breed, namePrefix, limit), Dog.class);
+    }
+
+    @Override
+    public long countByBreedAndNamePrefix(String breed, String namePrefix) {
+        return mongoOperations.count(DogSearchQueries.filter(breed, namePrefix), Dog.class);
+    }
+}
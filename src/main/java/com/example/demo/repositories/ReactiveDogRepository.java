@@ -0,0 +1,26 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Dog;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.ReadPreference;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ReactiveDogRepository extends ReactiveMongoRepository<Dog, String>, ReactiveDogSearchRepository {
+
+    // Keyset pagination on _id: first page and every page after a given cursor.
+    // Like DogRepository, list reads are served by secondaries when available.
+    @ReadPreference("secondaryPreferred")
+    Flux<Dog> findAllByOrderByIdAsc(Limit limit);
+
+    @ReadPreference("secondaryPreferred")
+    Flux<Dog> findByIdGreaterThanOrderByIdAsc(String after, Limit limit);
+
+    // Demand from the subscriber drives cursor batches, so slow clients apply backpressure
+    @Meta(cursorBatchSize = 1000)
+    @ReadPreference("secondaryPreferred")
+    Flux<Dog> streamAllByOrderByIdAsc();
+}
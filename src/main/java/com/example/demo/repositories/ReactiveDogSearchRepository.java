@@ -0,0 +1,16 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Dog;
+import org.springframework.data.domain.Limit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link DogSearchRepository}.
+ */
+public interface ReactiveDogSearchRepository {
+
+    Flux<Dog> searchByBreedAndNamePrefix(String breed, String namePrefix, Limit limit);
+
+    Mono<Long> countByBreedAndNamePrefix(String breed, String namePrefix);
+}
@@ -0,0 +1,24 @@
+package com.example.demo.repositories;
+
+import com.example.demo.models.Dog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class ReactiveDogSearchRepositoryImpl implements ReactiveDogSearchRepository {
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    @Override
+    public Flux<Dog> searchByBreedAndNamePrefix(String breed, String namePrefix, Limit limit) {
+        return mongoOperations.find(DogSearchQueries.search(breed, namePrefix, limit), Dog.class);
+    }
+
+    @Override
+    public Mono<Long> countByBreedAndNamePrefix(String breed, String namePrefix) {
+        return mongoOperations.count(DogSearchQueries.filter(breed, namePrefix), Dog.class);
+    }
+}
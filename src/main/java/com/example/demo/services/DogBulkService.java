@@ -0,0 +1,402 @@
+package com.example.demo.services;
+
+import com.example.demo.models.BulkItemStatus;
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogBulkItemResultDto;
+import com.example.demo.models.DogBulkResponseDto;
+import com.example.demo.models.DogBulkUpdateItemDto;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogRequestDto;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Batch create/update/delete of dogs through {@link MongoTemplate#bulkOps}.
+ * Requests are split into chunks of {@code dogs.bulk.chunk-size} items, one bulk write per chunk,
+ * and every item gets its own result entry. A bulk write only reports how many of its writes matched,
+ * so a dog that appears twice in a chunk starts another bulk write, and when not every write matched
+ * the dogs are read once afterwards to tell which did. In ordered mode processing stops at the first
+ * failing item and everything after it is reported as {@link BulkItemStatus#SKIPPED}.
+ */
+@Service
+@Slf4j
+public class DogBulkService {
+
+    private final MongoTemplate mongoTemplate;
+    private final DogMapper dogMapper;
+    private final Validator validator;
+    private final DogCache dogCache;
+    private final DogReadCoalescer readCoalescer;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public DogBulkService(MongoTemplate mongoTemplate,
+                          DogMapper dogMapper,
+                          Validator validator,
+                          DogCache dogCache,
+                          DogReadCoalescer readCoalescer,
+                          @Value("${dogs.bulk.chunk-size:1000}") int chunkSize,
+                          @Value("${dogs.bulk.max-items:10000}") int maxItems) {
+        this.mongoTemplate = mongoTemplate;
+        this.dogMapper = dogMapper;
+        this.validator = validator;
+        this.dogCache = dogCache;
+        this.readCoalescer = readCoalescer;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    public DogBulkResponseDto createDogs(List<DogRequestDto> requests, boolean ordered) {
+        log.info("Bulk creating {} dogs (ordered: {})", requests.size(), ordered);
+        checkSize(requests.size());
+        DogBulkItemResultDto[] results = new DogBulkItemResultDto[requests.size()];
+        boolean halted = false;
+
+        for (int start = 0; start < requests.size() && !halted; start += chunkSize) {
+            int end = Math.min(start + chunkSize, requests.size());
+            List<Integer> indexes = new ArrayList<>(end - start);
+            List<Dog> dogs = new ArrayList<>(end - start);
+
+            for (int i = start; i < end && !halted; i++) {
+                String violations = validate(requests.get(i));
+                if (violations != null) {
+                    results[i] = result(i, null, BulkItemStatus.INVALID, violations);
+                    halted = ordered;
+                    continue;
+                }
+                Dog dog = dogMapper.toDogEntity(requests.get(i));
+                // Ids are assigned up front so every created item can report its id
+                dog.setId(new ObjectId().toHexString());
+                dog.setVersion(0);
+                dogs.add(dog);
+                indexes.add(i);
+            }
+            if (dogs.isEmpty()) {
+                continue;
+            }
+
+            ChunkOutcome outcome = execute(
+                    mongoTemplate.bulkOps(mode(ordered), Dog.class).insert(dogs), dogs.size(), ordered);
+            for (int op = 0; op < dogs.size(); op++) {
+                int index = indexes.get(op);
+                results[index] = outcome.resultFor(op, index, dogs.get(op).getId(), BulkItemStatus.CREATED);
+                readCoalescer.invalidate(dogs.get(op).getId());
+            }
+            halted |= ordered && outcome.hasErrors();
+        }
+        return response(results);
+    }
+
+    public DogBulkResponseDto updateDogs(List<DogBulkUpdateItemDto> items, boolean ordered) {
+        log.info("Bulk updating {} dogs (ordered: {})", items.size(), ordered);
+        checkSize(items.size());
+        DogBulkItemResultDto[] results = new DogBulkItemResultDto[items.size()];
+        boolean halted = false;
+
+        for (int start = 0; start < items.size() && !halted; start += chunkSize) {
+            int end = Math.min(start + chunkSize, items.size());
+            List<Integer> indexes = new ArrayList<>(end - start);
+            Set<String> queued = new HashSet<>();
+            BulkOperations ops = null;
+
+            for (int i = start; i < end && !halted; i++) {
+                DogBulkUpdateItemDto item = items.get(i);
+                String violations = validate(item);
+                if (violations != null) {
+                    results[i] = result(i, item.getId(), BulkItemStatus.INVALID, violations);
+                    halted = ordered;
+                    continue;
+                }
+                if (!queued.add(item.getId())) {
+                    // The dog is already updated by this bulk write, whose results cannot tell the two apart
+                    halted = executeUpdates(ops, indexes, items, ordered, results);
+                    indexes = new ArrayList<>(end - i);
+                    queued = new HashSet<>(Set.of(item.getId()));
+                    ops = null;
+                    if (halted) {
+                        break;
+                    }
+                }
+                if (ops == null) {
+                    ops = mongoTemplate.bulkOps(mode(ordered), Dog.class);
+                }
+                ops.updateOne(updateQuery(item), update(item));
+                indexes.add(i);
+            }
+            if (ops != null) {
+                halted |= executeUpdates(ops, indexes, items, ordered, results);
+            }
+        }
+        return response(results);
+    }
+
+    public DogBulkResponseDto deleteDogs(List<String> ids, boolean ordered) {
+        log.info("Bulk deleting {} dogs (ordered: {})", ids.size(), ordered);
+        checkSize(ids.size());
+        DogBulkItemResultDto[] results = new DogBulkItemResultDto[ids.size()];
+        boolean halted = false;
+
+        for (int start = 0; start < ids.size() && !halted; start += chunkSize) {
+            int end = Math.min(start + chunkSize, ids.size());
+            int i = start;
+            while (i < end && !halted) {
+                List<Integer> indexes = new ArrayList<>(end - i);
+                Set<String> queued = new HashSet<>();
+                for (; i < end && !halted; i++) {
+                    String id = ids.get(i);
+                    if (id == null || id.isBlank()) {
+                        results[i] = result(i, id, BulkItemStatus.INVALID, "id: Id is required");
+                        halted = ordered;
+                    } else if (!queued.add(id)) {
+                        // Looked up again for the next bulk write, once this one has deleted the dog
+                        break;
+                    } else {
+                        indexes.add(i);
+                    }
+                }
+                if (!indexes.isEmpty()) {
+                    halted |= executeDeletes(indexes, ids, ordered, results);
+                }
+            }
+        }
+        return response(results);
+    }
+
+    private void checkSize(int size) {
+        if (size > maxItems) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "Bulk requests are limited to " + maxItems + " items");
+        }
+    }
+
+    private String validate(Object item) {
+        if (item == null) {
+            return "Item is required";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private Map<String, Integer> loadVersions(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Query query = query(where("_id").in(ids));
+        query.fields().include("version");
+        Map<String, Integer> versions = new HashMap<>();
+        for (Dog dog : mongoTemplate.find(query, Dog.class)) {
+            versions.put(dog.getId(), dog.getVersion());
+        }
+        return versions;
+    }
+
+    // Returns whether ordered processing has to stop
+    private boolean executeUpdates(BulkOperations ops, List<Integer> indexes, List<DogBulkUpdateItemDto> items,
+                                   boolean ordered, DogBulkItemResultDto[] results) {
+        ChunkOutcome outcome = execute(ops, indexes.size(), ordered);
+        boolean allMatched = outcome.allMatched();
+        // When some updates did not match, the versions they left behind tell which did: an update that
+        // matched moved its dog to the expected version + 1
+        Map<String, Integer> versions = allMatched || outcome.writeResult() == null
+                ? Map.of()
+                : loadVersions(indexes.stream().map(i -> items.get(i).getId()).toList());
+        BulkItemStatus[] statuses = new BulkItemStatus[indexes.size()];
+        int updated = 0;
+        for (int op = 0; op < indexes.size(); op++) {
+            DogBulkUpdateItemDto item = items.get(indexes.get(op));
+            statuses[op] = allMatched
+                    ? BulkItemStatus.UPDATED
+                    : statusAfter(item, versions.get(item.getId()));
+            if (statuses[op] == BulkItemStatus.UPDATED && outcome.succeeded(op)) {
+                updated++;
+            }
+        }
+        if (!allMatched && outcome.writeResult() != null && updated > outcome.writeResult().getMatchedCount()) {
+            // Another writer moved some of these dogs to exactly the expected version + 1 in the meantime.
+            // Which of the versioned updates landed is unknown, so none of them is reported as updated.
+            for (int op = 0; op < indexes.size(); op++) {
+                if (items.get(indexes.get(op)).getVersion() != null && statuses[op] == BulkItemStatus.UPDATED) {
+                    statuses[op] = BulkItemStatus.VERSION_CONFLICT;
+                }
+            }
+        }
+        for (int op = 0; op < indexes.size(); op++) {
+            int index = indexes.get(op);
+            String id = items.get(index).getId();
+            results[index] = outcome.resultFor(op, index, id, statuses[op]);
+            readCoalescer.invalidate(id);
+            dogCache.evict(id);
+        }
+        return ordered && outcome.hasErrors();
+    }
+
+    // Returns whether ordered processing has to stop
+    private boolean executeDeletes(List<Integer> indexes, List<String> ids, boolean ordered,
+                                   DogBulkItemResultDto[] results) {
+        Set<String> existing = loadVersions(indexes.stream().map(ids::get).toList()).keySet();
+        List<Integer> deletes = new ArrayList<>(existing.size());
+        for (int index : indexes) {
+            if (existing.contains(ids.get(index))) {
+                deletes.add(index);
+            } else {
+                results[index] = result(index, ids.get(index), BulkItemStatus.NOT_FOUND, null);
+            }
+        }
+        if (deletes.isEmpty()) {
+            return false;
+        }
+
+        BulkOperations ops = mongoTemplate.bulkOps(mode(ordered), Dog.class);
+        for (int index : deletes) {
+            ops.remove(query(where("_id").is(ids.get(index))));
+        }
+        ChunkOutcome outcome = execute(ops, deletes.size(), ordered);
+        // Dogs read above may have been deleted by another request before this write. The deleted count
+        // shows whether that happened, but not for which dogs, so then none of them is reported as deleted.
+        long attempted = IntStream.range(0, deletes.size()).filter(outcome::succeeded).count();
+        BulkItemStatus status = outcome.writeResult() != null && outcome.writeResult().getDeletedCount() < attempted
+                ? BulkItemStatus.NOT_FOUND
+                : BulkItemStatus.DELETED;
+        for (int op = 0; op < deletes.size(); op++) {
+            int index = deletes.get(op);
+            results[index] = outcome.resultFor(op, index, ids.get(index), status);
+            readCoalescer.invalidate(ids.get(index));
+            dogCache.evict(ids.get(index));
+        }
+        return ordered && outcome.hasErrors();
+    }
+
+    private static BulkItemStatus statusAfter(DogBulkUpdateItemDto item, Integer version) {
+        if (version == null) {
+            return BulkItemStatus.NOT_FOUND;
+        }
+        // Whatever version the dog has otherwise, it is not the one this write expected
+        return item.getVersion() == null || version == item.getVersion() + 1
+                ? BulkItemStatus.UPDATED
+                : BulkItemStatus.VERSION_CONFLICT;
+    }
+
+    private static Query updateQuery(DogBulkUpdateItemDto item) {
+        Criteria criteria = where("_id").is(item.getId());
+        if (item.getVersion() != null) {
+            criteria.and("version").is(item.getVersion());
+        }
+        return query(criteria);
+    }
+
+    private static Update update(DogBulkUpdateItemDto item) {
+        return new Update()
+                .set("name", item.getName())
+                .set("breed", item.getBreed())
+                .inc("version", 1)
+                .currentDate("lastModified");
+    }
+
+    private static ChunkOutcome execute(BulkOperations ops, int size, boolean ordered) {
+        try {
+            return new ChunkOutcome(ops.execute(), Map.of(), size);
+        } catch (BulkOperationException e) {
+            Map<Integer, String> errors = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                errors.put(error.getIndex(), error.getMessage());
+            }
+            // Ordered writes stop at the first error, unordered writes attempt every operation
+            int attempted = ordered && !errors.isEmpty()
+                    ? errors.keySet().stream().mapToInt(Integer::intValue).min().getAsInt() + 1
+                    : size;
+            return new ChunkOutcome(e.getResult(), errors, attempted);
+        } catch (DataAccessException e) {
+            log.error("Bulk write of {} operations failed", size, e);
+            Map<Integer, String> errors = new HashMap<>();
+            for (int op = 0; op < size; op++) {
+                errors.put(op, e.getMessage());
+            }
+            return new ChunkOutcome(null, errors, size);
+        }
+    }
+
+    private static BulkMode mode(boolean ordered) {
+        return ordered ? BulkMode.ORDERED : BulkMode.UNORDERED;
+    }
+
+    private static DogBulkItemResultDto result(int index, String id, BulkItemStatus status, String error) {
+        return DogBulkItemResultDto.builder()
+                .index(index)
+                .id(id)
+                .status(status)
+                .error(error)
+                .build();
+    }
+
+    private static DogBulkResponseDto response(DogBulkItemResultDto[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = result(i, null, BulkItemStatus.SKIPPED, null);
+            }
+        }
+        return DogBulkResponseDto.builder()
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private record ChunkOutcome(BulkWriteResult writeResult, Map<Integer, String> errors, int attempted) {
+
+        boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        boolean succeeded(int op) {
+            return op < attempted && !errors.containsKey(op);
+        }
+
+        boolean allMatched() {
+            return writeResult != null && writeResult.getMatchedCount() == attempted - errors.size();
+        }
+
+        DogBulkItemResultDto resultFor(int op, int index, String id, BulkItemStatus success) {
+            if (errors.containsKey(op)) {
+                return result(index, id, BulkItemStatus.FAILED, errors.get(op));
+            }
+            if (op >= attempted) {
+                return result(index, id, BulkItemStatus.SKIPPED, null);
+            }
+            return result(index, id, success, null);
+        }
+    }
+}
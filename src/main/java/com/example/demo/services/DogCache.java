@@ -0,0 +1,149 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogResponseDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of {@link DogResponseDto} keyed by dog id.
+ * Entries carry the {@code Dog.version} they were read at, so a slow reader can never
+ * overwrite a newer entry written by an update.
+ * <p>
+ * Every local write ({@link #put}, {@link #evict}) also takes the next number of a write sequence and leaves
+ * it on the entry, an eviction as an empty tombstone. Readers note {@link #lastWrite()} before their query and
+ * cache the result with {@link #putIfUnchangedSince}, which atomically refuses it if the dog was written since,
+ * including by a delete or an update that does not know the new version. Entries Caffeine drops by size or
+ * expiry raise a floor instead, so the write they carried is not forgotten.
+ * <p>
+ * Writes made by other instances are applied by {@link DogCacheInvalidator} when change notifications are
+ * enabled. While those may be missing it caps how old a served entry can be with {@link #limitMaxAge(Duration)}.
+ */
+@Component
+public class DogCache implements MeterBinder {
+
+    static final String CACHE_NAME = "dogs";
+
+    private final Cache<String, CachedDog> cache;
+    private final AtomicLong writes = new AtomicLong();
+    // Highest write carried by an entry that is no longer cached
+    private final AtomicLong forgottenWrites = new AtomicLong();
+    private volatile long maxAgeNanos = Long.MAX_VALUE;
+
+    public DogCache(@Value("${dogs.cache.maximum-size:10000}") long maximumSize,
+                    @Value("${dogs.cache.ttl:PT5M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                // Runs inside the removal, before a reader can find the entry missing
+                .<String, CachedDog>evictionListener((id, evicted, cause) -> {
+                    if (evicted != null) {
+                        forgottenWrites.accumulateAndGet(evicted.writtenAt(), Math::max);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public Optional<DogResponseDto> get(String id) {
+        CachedDog cached = cache.getIfPresent(id);
+        if (cached == null || cached.dog() == null || System.nanoTime() - cached.cachedAt() > maxAgeNanos) {
+            return Optional.empty();
+        }
+        return Optional.of(cached.dog());
+    }
+
+    /**
+     * Caches a dog this instance just wrote.
+     */
+    public void put(String id, Integer version, DogResponseDto dog) {
+        CachedDog candidate = new CachedDog(version(version), dog, System.nanoTime(), writes.incrementAndGet());
+        // Equal versions replace the entry too, which renews entries that were older than the max age
+        cache.asMap().merge(id, candidate,
+                (current, updated) -> updated.version() >= current.version() ? updated : current);
+    }
+
+    /**
+     * The write sequence to pass to {@link #putIfUnchangedSince}, taken before reading the dog from MongoDB.
+     */
+    public long lastWrite() {
+        return writes.get();
+    }
+
+    /**
+     * Caches a dog read from MongoDB, unless it was written or evicted after {@code lastWrite} was taken,
+     * in which case the read may predate that write.
+     */
+    public void putIfUnchangedSince(String id, Integer version, DogResponseDto dog, long lastWrite) {
+        cache.asMap().compute(id, (key, current) -> {
+            if (current == null) {
+                return lastWrite >= forgottenWrites.get()
+                        ? new CachedDog(version(version), dog, System.nanoTime(), 0)
+                        : null;
+            }
+            if (current.writtenAt() > lastWrite || current.version() > version(version)) {
+                return current;
+            }
+            // Keeps the write it replaces, which is not forgotten just because a newer read is cached
+            return new CachedDog(version(version), dog, System.nanoTime(), current.writtenAt());
+        });
+    }
+
+    /**
+     * Replaces a cached dog with a newer version written elsewhere. Dogs that are not cached, or were just
+     * evicted here, stay uncached, but the write is recorded so a read that started before it is not cached.
+     */
+    public void refresh(String id, Integer version, DogResponseDto dog) {
+        cache.asMap().compute(id, (key, current) -> {
+            if (current == null || current.dog() == null) {
+                int newest = current == null ? version(version) : Math.max(version(version), current.version());
+                return new CachedDog(newest, null, System.nanoTime(), writes.incrementAndGet());
+            }
+            return version(version) < current.version()
+                    ? current
+                    : new CachedDog(version(version), dog, System.nanoTime(), current.writtenAt());
+        });
+    }
+
+    public void evict(String id) {
+        cache.put(id, new CachedDog(-1, null, System.nanoTime(), writes.incrementAndGet()));
+    }
+
+    public void evictAll() {
+        // Raised first, so no read from before can be cached once the entries are gone
+        forgottenWrites.accumulateAndGet(writes.incrementAndGet(), Math::max);
+        cache.invalidateAll();
+    }
+
+    /**
+     * Treats entries cached longer than {@code maxAge} ago as misses until {@link #clearMaxAge()}.
+     */
+    public void limitMaxAge(Duration maxAge) {
+        maxAgeNanos = maxAge.toNanos();
+    }
+
+    public void clearMaxAge() {
+        maxAgeNanos = Long.MAX_VALUE;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private static int version(Integer version) {
+        return version == null ? -1 : version;
+    }
+
+    // A null dog is the tombstone of an eviction
+    private record CachedDog(int version, DogResponseDto dog, long cachedAt, long writtenAt) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogResponseDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link DogCache} of this instance consistent with writes made through any instance by applying
+ * the dog change stream: updates replace cached dogs with the newer version and deletes evict them.
+ * <p>
+ * While invalidations may be missing - the stream is down, has not confirmed it is caught up for more than
+ * {@code dogs.cache.invalidation.max-lag} (see {@link DogChangeHub#getLag()}, which also covers a stream that
+ * stalled silently), or this listener fell behind and was disconnected - cached dogs are only served up to
+ * {@code dogs.cache.invalidation.fallback-ttl} after they were read.
+ */
+@Component
+@ConditionalOnProperty(name = "dogs.changes.enabled", havingValue = "true")
+@Slf4j
+public class DogCacheInvalidator implements SmartLifecycle, DogChangeHub.Listener, MeterBinder {
+
+    private final DogChangeHub dogChangeHub;
+    private final DogCache dogCache;
+    private final Duration maxLag;
+    private final Duration fallbackTtl;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile DogChangeHub.Registration registration;
+    private volatile String lastEventId;
+    // Nothing is known about missed writes until the stream is confirmed healthy
+    private volatile boolean degraded = true;
+    private volatile boolean running;
+
+    public DogCacheInvalidator(DogChangeHub dogChangeHub,
+                               DogCache dogCache,
+                               @Value("${dogs.cache.invalidation.max-lag:PT5S}") Duration maxLag,
+                               @Value("${dogs.cache.invalidation.fallback-ttl:PT5S}") Duration fallbackTtl) {
+        this.dogChangeHub = dogChangeHub;
+        this.dogCache = dogCache;
+        this.maxLag = maxLag;
+        this.fallbackTtl = fallbackTtl;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dog-cache-invalidator-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @Override
+    public void send(String eventId, DogChangeEventDto event) {
+        lastEventId = eventId;
+        switch (event.getType()) {
+            case INSERT -> {
+                // Not cached yet, lookups of unknown ids are not cached either
+            }
+            case UPDATE -> {
+                DogResponseDto dog = event.getDog();
+                if (dog == null) {
+                    // Deleted before the update could be looked up, the delete follows
+                    dogCache.evict(event.getId());
+                } else {
+                    dogCache.refresh(event.getId(), dog.getVersion(), dog);
+                }
+            }
+            case DELETE -> dogCache.evict(event.getId());
+            case RESET -> dogCache.evictAll();
+        }
+    }
+
+    @Override
+    public void heartbeat() {
+    }
+
+    @Override
+    public void close() {
+        // Resubscribed with lastEventId on the next check, which replays or resets what was missed
+        registration = null;
+        degrade("disconnected from dog changes");
+    }
+
+    void checkHealth() {
+        if (registration == null) {
+            subscribe();
+        }
+        if (registration == null || !dogChangeHub.isStreaming()) {
+            degrade("dog change stream is down");
+        } else if (dogChangeHub.getLag().compareTo(maxLag) > 0) {
+            degrade("dog change stream lags by " + dogChangeHub.getLag());
+        } else if (degraded) {
+            degraded = false;
+            dogCache.clearMaxAge();
+            log.info("Dog cache invalidated by change stream, serving entries until their TTL");
+        }
+    }
+
+    private void degrade(String reason) {
+        if (!degraded) {
+            degraded = true;
+            dogCache.limitMaxAge(fallbackTtl);
+            log.warn("Dog cache entries limited to {}: {}", fallbackTtl, reason);
+        }
+    }
+
+    private void subscribe() {
+        try {
+            registration = dogChangeHub.subscribe(lastEventId, this);
+        } catch (ResponseStatusException e) {
+            log.warn("Cannot subscribe to dog changes: {}", e.getReason());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        dogCache.limitMaxAge(fallbackTtl);
+        subscribe();
+        scheduler.scheduleWithFixedDelay(this::checkHealth, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        DogChangeHub.Registration current = registration;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("dogs.cache.invalidation.degraded", this, invalidator -> invalidator.degraded ? 1 : 0)
+                .description("1 while cached dogs fall back to dogs.cache.invalidation.fallback-ttl")
+                .register(registry);
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogChangeType;
+import com.example.demo.models.DogMapper;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans out changes to the {@code dogs} collection from a single MongoDB change stream to any number
+ * of subscribers, typically Server-Sent Events connections.
+ * <p>
+ * Every subscriber owns a bounded queue that is drained by its own delivery task, on a pool of at most
+ * {@code dogs.changes.max-subscribers} threads, so a slow client only ever delays itself: when its queue
+ * overflows it is disconnected and can reconnect with the id of the last event it received. Event ids are
+ * the change stream resume tokens. The most recent events are kept in a replay buffer to serve such
+ * reconnects, and the change stream itself resumes after the last token it saw whenever it has to be
+ * restarted. Requires a replica set, hence {@code dogs.changes.enabled}.
+ */
+@Service
+@ConditionalOnProperty(name = "dogs.changes.enabled", havingValue = "true")
+@Slf4j
+public class DogChangeHub implements SmartLifecycle, MeterBinder {
+
+    static final String COLLECTION = "dogs";
+
+    // Resumed after a token that fell out of the oplog, or the stream was invalidated
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    private static final Duration INITIAL_RESTART_DELAY = Duration.ofSeconds(1);
+    private static final Duration MAX_RESTART_DELAY = Duration.ofMinutes(1);
+    // How long the server holds an empty getMore open, so a quiet stream still reports back at this rate
+    private static final Duration MAX_AWAIT = Duration.ofSeconds(1);
+    private static final Change HEARTBEAT = new Change(null, null);
+
+    private final MongoTemplate mongoTemplate;
+    private final DogMapper dogMapper;
+    private final int bufferSize;
+    private final int replaySize;
+    private final int maxSubscribers;
+    private final Duration heartbeatInterval;
+    private final Executor deliveryExecutor;
+    private final ScheduledExecutorService scheduler;
+
+    // Guards the replay buffer together with the subscriber list, so a new subscriber sees
+    // every event exactly once: either replayed or live
+    private final Object lock = new Object();
+    private final Deque<Change> replay = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile Thread streamReader;
+    private volatile boolean streaming;
+    private volatile String lastToken;
+    // Every change up to this point in time has been received, see getLag()
+    private volatile Instant caughtUpTo = Instant.EPOCH;
+    private volatile boolean running;
+
+    private Counter eventsCounter;
+    private Counter droppedCounter;
+
+    @Autowired
+    public DogChangeHub(MongoTemplate mongoTemplate,
+                        DogMapper dogMapper,
+                        @Value("${dogs.changes.buffer-size:256}") int bufferSize,
+                        @Value("${dogs.changes.replay-size:1024}") int replaySize,
+                        @Value("${dogs.changes.max-subscribers:1000}") int maxSubscribers,
+                        @Value("${dogs.changes.heartbeat-interval:PT15S}") Duration heartbeatInterval) {
+        this(mongoTemplate, dogMapper, bufferSize, replaySize, maxSubscribers, heartbeatInterval,
+                deliveryExecutor(maxSubscribers));
+    }
+
+    DogChangeHub(MongoTemplate mongoTemplate, DogMapper dogMapper, int bufferSize, int replaySize,
+                 int maxSubscribers, Duration heartbeatInterval, Executor deliveryExecutor) {
+        this.mongoTemplate = mongoTemplate;
+        this.dogMapper = dogMapper;
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeatInterval = heartbeatInterval;
+        this.deliveryExecutor = deliveryExecutor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("dog-changes-scheduler-"));
+    }
+
+    /**
+     * Receives the events of one subscriber, always from one thread at a time.
+     */
+    public interface Listener {
+
+        void send(String eventId, DogChangeEventDto event) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        // The subscription ended on the server side: shutdown or a full buffer
+        void close();
+    }
+
+    public interface Registration {
+
+        void cancel();
+    }
+
+    /**
+     * Registers a listener for all changes from now on. With a {@code lastEventId} the events after it
+     * are replayed first; if they are no longer buffered the listener gets a {@link DogChangeType#RESET}.
+     */
+    public Registration subscribe(String lastEventId, Listener listener) {
+        Subscriber subscriber = new Subscriber(listener);
+        synchronized (lock) {
+            if (subscribers.size() >= maxSubscribers) {
+                throw new ResponseStatusException(
+                        HttpStatus.SERVICE_UNAVAILABLE, "Too many subscribers to dog changes");
+            }
+            if (lastEventId != null) {
+                List<Change> missed = missedSince(lastEventId);
+                if (missed == null || missed.size() > bufferSize) {
+                    subscriber.offer(reset());
+                } else {
+                    missed.forEach(subscriber::offer);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return subscriber;
+    }
+
+    // Whether the change stream is currently open, as opposed to failed and waiting to resume
+    public boolean isStreaming() {
+        return running && streaming;
+    }
+
+    /**
+     * How far behind the cluster the changes received so far may be: the time since the cluster time of the
+     * last change, at its one second resolution, or since the last empty batch was requested, which confirmed
+     * that nothing else changed. On a quiet collection the server answers every {@code MAX_AWAIT}, so this
+     * keeps growing while the stream is stalled or down instead of staying at the lag of the last change.
+     */
+    public Duration getLag() {
+        Duration behind = Duration.between(caughtUpTo, Instant.now());
+        return behind.isNegative() ? Duration.ZERO : behind;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    void publish(String token, DogChangeEventDto event) {
+        Change change = new Change(token, event);
+        synchronized (lock) {
+            replay.addLast(change);
+            if (replay.size() > replaySize) {
+                replay.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(change);
+            }
+        }
+        if (eventsCounter != null) {
+            eventsCounter.increment();
+        }
+    }
+
+    private List<Change> missedSince(String eventId) {
+        List<Change> missed = null;
+        for (Iterator<Change> it = replay.iterator(); it.hasNext(); ) {
+            Change change = it.next();
+            if (missed != null) {
+                missed.add(change);
+            } else if (eventId.equals(change.token())) {
+                missed = new ArrayList<>();
+            }
+        }
+        return missed;
+    }
+
+    private Change reset() {
+        Change latest = replay.peekLast();
+        return new Change(latest == null ? null : latest.token(),
+                DogChangeEventDto.builder().type(DogChangeType.RESET).build());
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread reader = new Thread(this::readChanges, "dog-change-stream");
+        reader.setDaemon(true);
+        streamReader = reader;
+        reader.start();
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        scheduler.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        log.info("Listening for changes to the {} collection", COLLECTION);
+    }
+
+    /**
+     * Reads the change stream until stopped, reopening it with backoff after the last token it saw whenever
+     * it fails. The driver cursor is read directly so empty batches are seen too, see {@link #getLag()}.
+     */
+    private void readChanges() {
+        Duration restartDelay = INITIAL_RESTART_DELAY;
+        while (running) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = openStream()) {
+                streaming = true;
+                while (running) {
+                    Instant requested = Instant.now();
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    restartDelay = INITIAL_RESTART_DELAY;
+                    if (change == null) {
+                        // The post batch resume token of an empty batch moves with the cluster time
+                        BsonDocument token = cursor.getResumeToken();
+                        if (token != null) {
+                            lastToken = fromResumeToken(token);
+                        }
+                        caughtUpTo = requested;
+                    } else if (!onChange(change)) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                if (isHistoryLost(e)) {
+                    log.warn("Change stream on {} cannot resume after {}, restarting from now", COLLECTION, lastToken);
+                    lastToken = null;
+                    resetSubscribers();
+                } else {
+                    log.warn("Change stream on {} failed, resuming in {}", COLLECTION, restartDelay, e);
+                }
+            } finally {
+                streaming = false;
+            }
+            try {
+                Thread.sleep(restartDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Duration doubled = restartDelay.multipliedBy(2);
+            restartDelay = doubled.compareTo(MAX_RESTART_DELAY) > 0 ? MAX_RESTART_DELAY : doubled;
+        }
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openStream() {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(COLLECTION)
+                .watch(List.of(Aggregates.match(Filters.in("operationType",
+                        List.of("insert", "update", "replace", "delete", "invalidate")))))
+                // Updates are applied with $set, so ask for the resulting document
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(MAX_AWAIT.toMillis(), TimeUnit.MILLISECONDS);
+        String token = lastToken;
+        if (token != null) {
+            stream = stream.resumeAfter(toResumeToken(token));
+        }
+        return stream.cursor();
+    }
+
+    // False once the stream cannot continue and has to be reopened
+    private boolean onChange(ChangeStreamDocument<Document> raw) {
+        DogChangeType type = switch (raw.getOperationType()) {
+            case INSERT -> DogChangeType.INSERT;
+            case UPDATE, REPLACE -> DogChangeType.UPDATE;
+            case DELETE -> DogChangeType.DELETE;
+            default -> null;
+        };
+        if (type == null) {
+            // The collection was dropped or renamed: the stream cannot be resumed past this point
+            log.warn("Change stream on {} ended with {}", COLLECTION, raw.getOperationType());
+            lastToken = null;
+            resetSubscribers();
+            return false;
+        }
+
+        String token = fromResumeToken(raw.getResumeToken());
+        lastToken = token;
+        BsonTimestamp clusterTime = raw.getClusterTime();
+        caughtUpTo = clusterTime == null ? Instant.now() : Instant.ofEpochSecond(clusterTime.getTime());
+        Document fullDocument = type == DogChangeType.DELETE ? null : raw.getFullDocument();
+        Dog dog = fullDocument == null ? null : mongoTemplate.getConverter().read(Dog.class, fullDocument);
+        publish(token, DogChangeEventDto.builder()
+                .type(type)
+                .id(documentId(raw.getDocumentKey()))
+                .dog(dog == null ? null : dogMapper.toDogResponseDto(dog))
+                .build());
+        return true;
+    }
+
+    // Everything buffered so far predates a gap, so no subscriber can be caught up from it
+    private void resetSubscribers() {
+        synchronized (lock) {
+            replay.clear();
+            Change reset = new Change(null, DogChangeEventDto.builder().type(DogChangeType.RESET).build());
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(reset);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        Thread reader = streamReader;
+        if (reader != null) {
+            // Otherwise noticed after the pending getMore, within MAX_AWAIT
+            reader.interrupt();
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.cancel();
+            subscriber.listener.close();
+        }
+        if (deliveryExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("dogs.changes.subscribers", subscribers, List::size)
+                .description("Open subscriptions to dog changes")
+                .register(registry);
+        eventsCounter = Counter.builder("dogs.changes.events")
+                .description("Change stream events fanned out to subscribers")
+                .register(registry);
+        droppedCounter = Counter.builder("dogs.changes.dropped")
+                .description("Subscribers disconnected because their buffer was full")
+                .register(registry);
+    }
+
+    private static boolean isHistoryLost(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoServerException serverException
+                    && (serverException.getCode() == CHANGE_STREAM_HISTORY_LOST
+                    || serverException.getCode() == CHANGE_STREAM_FATAL_ERROR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String documentId(BsonDocument documentKey) {
+        BsonValue id = documentKey == null ? null : documentKey.get("_id");
+        if (id == null) {
+            return null;
+        }
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private static String fromResumeToken(BsonDocument resumeToken) {
+        return resumeToken.getString("_data").getValue();
+    }
+
+    private static BsonDocument toResumeToken(String token) {
+        return new BsonDocument("_data", new BsonString(token));
+    }
+
+    // One thread per draining subscriber at most, idle threads are let go. Subscribers never outnumber
+    // max-subscribers, so neither do the threads, and a drain that finds them all busy waits for one
+    private static ExecutorService deliveryExecutor(int maxSubscribers) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxSubscribers, maxSubscribers, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("dog-changes-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static CustomizableThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    private record Change(String token, DogChangeEventDto event) {
+    }
+
+    private final class Subscriber implements Registration {
+
+        private final Listener listener;
+        private final BlockingQueue<Change> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        Subscriber(Listener listener) {
+            this.listener = listener;
+        }
+
+        void offer(Change change) {
+            if (cancelled) {
+                return;
+            }
+            if (!queue.offer(change)) {
+                if (change == HEARTBEAT) {
+                    // A full queue already keeps the connection busy
+                    return;
+                }
+                log.debug("Disconnecting dog change subscriber with {} undelivered events", queue.size());
+                if (droppedCounter != null) {
+                    droppedCounter.increment();
+                }
+                cancel();
+                queue.clear();
+                listener.close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    deliveryExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Change change;
+                while (!cancelled && (change = queue.poll()) != null) {
+                    if (change == HEARTBEAT) {
+                        listener.heartbeat();
+                    } else {
+                        listener.send(change.token(), change.event());
+                    }
+                }
+            } catch (Exception e) {
+                // The client went away
+                log.debug("Dropping dog change subscriber: {}", e.toString());
+                cancel();
+            } finally {
+                draining.set(false);
+            }
+            // Picks up anything offered between the last poll and resetting the flag
+            if (!cancelled && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogResponseDto;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Maps large dog results to DTOs in chunks of {@code dogs.mapping.chunk-size} on a fork-join pool of
+ * {@code dogs.mapping.parallelism} threads (one per processor by default), while {@link DogMapper} maps them one
+ * after another. Lists shorter than {@code dogs.mapping.parallel-threshold} are not worth the hand-off and are
+ * mapped by {@link DogMapper} directly.
+ * <p>
+ * {@link #forEachChunk} maps a cursor without ever holding all of its dogs: the chunks are handed to the caller
+ * in order as they are done, so each can be written to the response while the next ones are being mapped.
+ */
+@Component
+public class DogChunkedMapper implements DisposableBean {
+
+    private final DogMapper dogMapper;
+    private final int chunkSize;
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public DogChunkedMapper(DogMapper dogMapper,
+                            @Value("${dogs.mapping.chunk-size:1024}") int chunkSize,
+                            @Value("${dogs.mapping.parallelism:0}") int parallelism,
+                            @Value("${dogs.mapping.parallel-threshold:10000}") int parallelThreshold) {
+        this.dogMapper = dogMapper;
+        this.chunkSize = chunkSize;
+        this.parallelThreshold = parallelThreshold;
+        // A pool of its own rather than the common one, so large results cannot hold up other users of that
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("dog-mapping-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+    }
+
+    /**
+     * Same result as {@link DogMapper#toDogResponseDtoList}, written into an array sized up front. The list can
+     * be read but not resized.
+     */
+    public List<DogResponseDto> toDogResponseDtoList(List<Dog> dogs) {
+        if (dogs.size() < parallelThreshold) {
+            return dogMapper.toDogResponseDtoList(dogs);
+        }
+        List<Dog> indexed = dogs instanceof RandomAccess ? dogs : new ArrayList<>(dogs);
+        DogResponseDto[] dtos = new DogResponseDto[indexed.size()];
+        pool.invoke(new MapRange(indexed, dtos, 0, dtos.length));
+        return Arrays.asList(dtos);
+    }
+
+    /**
+     * Maps {@code dogs} chunk by chunk and hands each chunk to {@code consumer} on the calling thread, in order.
+     * Up to {@code parallelism} chunks are mapped ahead of the one being consumed, which bounds memory and lets
+     * reading, mapping and writing overlap. Returns the number of dogs mapped.
+     */
+    public int forEachChunk(Iterator<Dog> dogs, Consumer<List<DogResponseDto>> consumer) {
+        List<Dog> chunk = nextChunk(dogs);
+        if (!dogs.hasNext()) {
+            // A single chunk, mapped right here
+            consumer.accept(map(chunk));
+            return chunk.size();
+        }
+        Deque<ForkJoinTask<List<DogResponseDto>>> inFlight = new ArrayDeque<>();
+        int mapped = 0;
+        try {
+            while (!chunk.isEmpty()) {
+                List<Dog> dogsToMap = chunk;
+                inFlight.add(pool.submit(() -> map(dogsToMap)));
+                if (inFlight.size() > pool.getParallelism()) {
+                    mapped += consume(inFlight.poll(), consumer);
+                }
+                chunk = nextChunk(dogs);
+            }
+            while (!inFlight.isEmpty()) {
+                mapped += consume(inFlight.poll(), consumer);
+            }
+        } finally {
+            // Left over when the consumer failed, e.g. because the client went away
+            inFlight.forEach(task -> task.cancel(false));
+        }
+        return mapped;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private static int consume(ForkJoinTask<List<DogResponseDto>> task, Consumer<List<DogResponseDto>> consumer) {
+        List<DogResponseDto> dtos = task.join();
+        consumer.accept(dtos);
+        return dtos.size();
+    }
+
+    private List<Dog> nextChunk(Iterator<Dog> dogs) {
+        List<Dog> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && dogs.hasNext()) {
+            chunk.add(dogs.next());
+        }
+        return chunk;
+    }
+
+    private List<DogResponseDto> map(List<Dog> dogs) {
+        List<DogResponseDto> dtos = new ArrayList<>(dogs.size());
+        for (Dog dog : dogs) {
+            dtos.add(dogMapper.toDogResponseDto(dog));
+        }
+        return dtos;
+    }
+
+    // Splits in halves down to chunk-size ranges, each mapped into its own slots of the shared array
+    private final class MapRange extends RecursiveAction {
+
+        private final List<Dog> dogs;
+        private final DogResponseDto[] dtos;
+        private final int start;
+        private final int end;
+
+        MapRange(List<Dog> dogs, DogResponseDto[] dtos, int start, int end) {
+            this.dogs = dogs;
+            this.dtos = dtos;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= chunkSize) {
+                for (int i = start; i < end; i++) {
+                    dtos[i] = dogMapper.toDogResponseDto(dogs.get(i));
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new MapRange(dogs, dtos, start, middle), new MapRange(dogs, dtos, middle, end));
+        }
+    }
+}
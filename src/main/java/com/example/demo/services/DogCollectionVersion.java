@@ -0,0 +1,47 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.mongodb.ReadPreference;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Version of the whole dogs collection for the collection ETag, aggregated by MongoDB without reading the dogs:
+ * the number of dogs, the sum of their versions and the newest {@code lastModified}. Inserts and deletes change
+ * the count and updates the sum, the newest {@code lastModified} tells an insert and a delete in between apart.
+ * <p>
+ * It is read with the same read preference as the list of dogs and before it, so an ETag can describe an older
+ * collection than its body, which costs the client one more full response, but never a newer one.
+ */
+public record DogCollectionVersion(long count, long versions, Instant lastModified) {
+
+    static final DogCollectionVersion EMPTY = new DogCollectionVersion(0, 0, null);
+
+    static final TypedAggregation<Dog> AGGREGATION = Aggregation.newAggregation(Dog.class,
+                    Aggregation.group()
+                            .count().as("count")
+                            .sum("version").as("versions")
+                            .max("lastModified").as("lastModified"))
+            .withOptions(AggregationOptions.builder().readPreference(ReadPreference.secondaryPreferred()).build());
+
+    // An empty collection has no group to return
+    static DogCollectionVersion of(Document result) {
+        if (result == null) {
+            return EMPTY;
+        }
+        Date lastModified = result.getDate("lastModified");
+        return new DogCollectionVersion(
+                ((Number) result.get("count")).longValue(),
+                ((Number) result.get("versions")).longValue(),
+                lastModified == null ? null : lastModified.toInstant());
+    }
+
+    public String etag() {
+        return "\"" + count + "-" + versions + "-" + (lastModified == null ? 0 : lastModified.toEpochMilli()) + "\"";
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Timers and result-size summaries for the MongoDB operations behind the dog services.
+ * <ul>
+ *     <li>{@code dogs.repository} - latency per {@code operation} and {@code outcome}
+ *     ({@code success}, {@code not_found}, {@code conflict}, {@code error}, or {@code cancelled} when a
+ *     reactive subscriber went away first)</li>
+ *     <li>{@code dogs.repository.results} - number of dogs returned per list {@code operation}</li>
+ * </ul>
+ * Both publish percentile histograms so p95/p99 can be aggregated across instances.
+ */
+@Component
+public class DogMetrics {
+
+    static final String TIMER_NAME = "dogs.repository";
+    static final String RESULTS_NAME = "dogs.repository.results";
+
+    private final Meter.MeterProvider<Timer> timers;
+    private final Meter.MeterProvider<DistributionSummary> resultSizes;
+
+    public DogMetrics(MeterRegistry registry) {
+        this.timers = Timer.builder(TIMER_NAME)
+                .description("Latency of MongoDB operations issued for dogs")
+                .publishPercentileHistogram()
+                .withRegistry(registry);
+        this.resultSizes = DistributionSummary.builder(RESULTS_NAME)
+                .description("Number of dogs returned by list operations")
+                .baseUnit("dogs")
+                .publishPercentileHistogram()
+                .withRegistry(registry);
+    }
+
+    public <T> T record(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            timers.withTags("operation", operation, "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void record(String operation, Runnable call) {
+        record(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Same as {@link #record(String, Supplier)} for the reactive stack, timed from subscription to completion.
+     */
+    public <T> Mono<T> record(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicReference<String> outcome = new AtomicReference<>("cancelled");
+            return call
+                    .doOnSuccess(result -> outcome.set("success"))
+                    .doOnError(e -> outcome.set(outcome(e)))
+                    .doFinally(signal -> timers.withTags("operation", operation, "outcome", outcome.get())
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Times a reactive list operation like {@link #record(String, Mono)} and records how many dogs it emitted.
+     */
+    public <T> Flux<T> record(String operation, Flux<T> call) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicReference<String> outcome = new AtomicReference<>("cancelled");
+            AtomicInteger size = new AtomicInteger();
+            return call
+                    .doOnNext(element -> size.incrementAndGet())
+                    .doOnComplete(() -> outcome.set("success"))
+                    .doOnError(e -> outcome.set(outcome(e)))
+                    .doFinally(signal -> {
+                        timers.withTags("operation", operation, "outcome", outcome.get())
+                                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        recordResultSize(operation, size.get());
+                    });
+        });
+    }
+
+    public void recordResultSize(String operation, int size) {
+        resultSizes.withTags("operation", operation).record(size);
+    }
+
+    private static String outcome(Throwable e) {
+        if (e instanceof ResponseStatusException statusException
+                && statusException.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+            return "not_found";
+        }
+        if (e instanceof OptimisticLockingFailureException) {
+            return "conflict";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for the dog reads: while one thread runs a read, identical reads on other threads wait for
+ * its result instead of sending the same query to MongoDB, so a cache expiry or a warm-up under load costs
+ * one query per dog rather than one per request.
+ * <p>
+ * Waiting threads give up after {@code dogs.single-flight.timeout} with {@code 503}. Local writes call
+ * {@link #invalidate} before they touch the {@link DogCache}, after which new reads start a query of their
+ * own instead of joining one that may have read the dog before the write; a read that overlapped a write is
+ * still returned to the requests already waiting for it. Whether it may be cached is decided atomically by
+ * {@link DogCache#putIfUnchangedSince}, since a write can land right after the check here. Waits are counted
+ * as {@code dogs.singleflight.joined} by {@code operation} and {@code outcome}, {@code dogs.singleflight.waiting}
+ * shows how many are waiting now.
+ */
+@Component
+public class DogReadCoalescer {
+
+    static final String FIND_BY_ID = "findById";
+    static final String FIND_ALL = "findAll";
+
+    private final ConcurrentHashMap<Key, Flight> flights = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Meter.MeterProvider<Counter> joined;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public DogReadCoalescer(@Value("${dogs.single-flight.timeout:PT10S}") Duration timeout,
+                            MeterRegistry registry) {
+        this.timeout = timeout;
+        this.joined = Counter.builder("dogs.singleflight.joined")
+                .description("Reads that waited for an identical read in progress instead of querying MongoDB")
+                .withRegistry(registry);
+        Gauge.builder("dogs.singleflight.waiting", waiting, AtomicInteger::get)
+                .description("Reads currently waiting for an identical read in progress")
+                .register(registry);
+    }
+
+    public <T> T coalesce(String operation, String argument, Supplier<T> read) {
+        return coalesce(operation, argument, read, result -> {
+        });
+    }
+
+    /**
+     * Runs {@code read} unless an identical one is in progress, in which case its result (or exception) is
+     * returned. {@code ifCurrent} is only called by the thread that ran the read, and skipped if a write
+     * invalidated it meanwhile. A write can still land between that check and the call, so a result cached
+     * there has to go through {@link DogCache#putIfUnchangedSince}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String operation, String argument, Supplier<T> read, Consumer<T> ifCurrent) {
+        Key key = new Key(operation, argument);
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            return (T) await(operation, existing);
+        }
+        try {
+            T result = read.get();
+            flight.result.complete(result);
+            if (!flight.invalidated) {
+                ifCurrent.accept(result);
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Reactive counterpart of {@link #coalesce(String, String, Supplier, Consumer)}: identical reads subscribed
+     * while {@code read} is in progress complete with its result, without holding a thread while they wait.
+     * If the subscriber of the read in progress goes away first, the reads waiting for it fail with {@code 503}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String operation, String argument, Mono<T> read, Consumer<T> ifCurrent) {
+        return Mono.defer(() -> {
+            Key key = new Key(operation, argument);
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing != null) {
+                return (Mono<T>) join(operation, existing);
+            }
+            return read
+                    .doOnNext(result -> {
+                        flight.result.complete(result);
+                        if (!flight.invalidated) {
+                            ifCurrent.accept(result);
+                        }
+                    })
+                    .doOnError(flight.result::completeExceptionally)
+                    .doFinally(signal -> {
+                        flights.remove(key, flight);
+                        if (signal == SignalType.CANCEL) {
+                            flight.result.completeExceptionally(new ResponseStatusException(
+                                    HttpStatus.SERVICE_UNAVAILABLE, "Concurrent " + operation + " was cancelled"));
+                        } else {
+                            // Completed without a result
+                            flight.result.complete(null);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Called after a dog was written: later reads of it, and of all dogs, no longer join reads in progress.
+     */
+    public void invalidate(String id) {
+        invalidate(new Key(FIND_BY_ID, id));
+        invalidate(new Key(FIND_ALL, null));
+    }
+
+    private void invalidate(Key key) {
+        Flight flight = flights.remove(key);
+        if (flight != null) {
+            flight.invalidated = true;
+        }
+    }
+
+    private Object await(String operation, Flight flight) {
+        String outcome = "error";
+        waiting.incrementAndGet();
+        try {
+            Object result = flight.result.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            outcome = "success";
+            return result;
+        } catch (ExecutionException e) {
+            // The same exception the reading thread got, e.g. 404 for a missing dog
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            outcome = "timeout";
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Timed out waiting for a concurrent " + operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", e);
+        } finally {
+            waiting.decrementAndGet();
+            joined.withTags("operation", operation, "outcome", outcome).increment();
+        }
+    }
+
+    private Mono<Object> join(String operation, Flight flight) {
+        return Mono.defer(() -> {
+            waiting.incrementAndGet();
+            AtomicReference<String> outcome = new AtomicReference<>("cancelled");
+            // Cancelling one waiting read must not cancel the result the others are waiting for
+            return Mono.fromFuture(flight.result, true)
+                    .timeout(timeout)
+                    .doOnSuccess(result -> outcome.set("success"))
+                    .doOnError(e -> outcome.set(e instanceof TimeoutException ? "timeout" : "error"))
+                    .onErrorMap(TimeoutException.class, e -> new ResponseStatusException(
+                            HttpStatus.SERVICE_UNAVAILABLE, "Timed out waiting for a concurrent " + operation))
+                    .doFinally(signal -> {
+                        waiting.decrementAndGet();
+                        joined.withTags("operation", operation, "outcome", outcome.get()).increment();
+                    });
+        });
+    }
+
+    int waiting() {
+        return waiting.get();
+    }
+
+    private record Key(String operation, String argument) {
+    }
+
+    private static final class Flight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile boolean invalidated;
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export and import of the whole dogs collection as gzip'd NDJSON, one MongoDB Extended JSON document per line,
+ * for backfills and environment clones. Documents are copied as stored, ids and versions included, without
+ * mapping them to {@link Dog}.
+ * <p>
+ * Exports read a cursor in batches of {@code dogs.transfer.batch-size} and write through a {@link FileChannel}
+ * to a {@code .part} file that is renamed once complete. Imports insert chunks of {@code batch-size} documents
+ * with unordered {@code insertMany} on {@code dogs.transfer.parallelism} threads. At most that many chunks wait
+ * for a thread, so memory stays bounded whatever the file size. Every line before the first chunk still in
+ * progress is recorded in a {@code .checkpoint} file next to the import file, and a later import of the same
+ * file continues from there, until an export replaces the file and drops its checkpoint. Documents already
+ * present (duplicate ids) count as imported, so chunks that were in progress when an import stopped can safely
+ * be inserted again.
+ */
+@Service
+@Slf4j
+public class DogTransferService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+    private final int parallelism;
+
+    public DogTransferService(MongoTemplate mongoTemplate,
+                              @Value("${dogs.transfer.batch-size:1000}") int batchSize,
+                              @Value("${dogs.transfer.parallelism:4}") int parallelism) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    public record ImportResult(long imported, long duplicates, long resumedAfterLine) {
+    }
+
+    /**
+     * Writes every dog, ordered by id, to {@code file}. Dogs written while the export runs may or may not be
+     * included, it is not a point-in-time snapshot. A checkpoint left by an import of the file it replaces is
+     * deleted, since its line numbers do not apply to the new content.
+     */
+    public long export(Path file) throws IOException {
+        log.info("Exporting dogs to {}", file);
+        long start = System.nanoTime();
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        long exported = 0;
+        try (MongoCursor<Document> cursor = collection().find()
+                .sort(Sorts.ascending("_id"))
+                .batchSize(batchSize)
+                .iterator();
+             FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8),
+                     BUFFER_SIZE)) {
+            while (cursor.hasNext()) {
+                writer.write(cursor.next().toJson(JSON));
+                writer.write('\n');
+                exported++;
+            }
+        }
+        // Dropped first, so the new file is never paired with the old checkpoint
+        Files.deleteIfExists(checkpointPath(file));
+        Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Exported {} dogs to {} in {} ms", exported, file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return exported;
+    }
+
+    /**
+     * Inserts the dogs of an exported {@code file}, continuing after its checkpoint if an earlier import of it
+     * stopped. The checkpoint is removed once the whole file is imported.
+     */
+    public ImportResult importFrom(Path file) throws IOException, InterruptedException {
+        Checkpoint checkpoint = new Checkpoint(checkpointPath(file));
+        long resumeAfter = checkpoint.committed();
+        log.info("Importing dogs from {}{}", file, resumeAfter > 0 ? " after line " + resumeAfter : "");
+        long start = System.nanoTime();
+
+        AtomicLong imported = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dog-import-");
+        threadFactory.setDaemon(true);
+        // Once every thread is busy and the queue is full the reader inserts a chunk itself, which stops it
+        // from reading further ahead
+        ThreadPoolExecutor inserters = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8),
+                     BUFFER_SIZE)) {
+            long line = 0;
+            long chunkStart = resumeAfter;
+            List<String> chunk = new ArrayList<>(batchSize);
+            String text;
+            while (failure.get() == null && (text = reader.readLine()) != null) {
+                line++;
+                if (line <= resumeAfter) {
+                    continue;
+                }
+                if (!text.isBlank()) {
+                    chunk.add(text);
+                }
+                if (chunk.size() == batchSize) {
+                    submit(inserters, chunk, chunkStart, line, checkpoint, imported, duplicates, failure);
+                    chunk = new ArrayList<>(batchSize);
+                    chunkStart = line;
+                }
+            }
+            if (failure.get() == null) {
+                submit(inserters, chunk, chunkStart, line, checkpoint, imported, duplicates, failure);
+            }
+        } finally {
+            inserters.shutdown();
+            inserters.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Import of " + file + " stopped, lines up to " + checkpoint.committed()
+                    + " are imported; run it again to continue", failure.get());
+        }
+        checkpoint.delete();
+        log.info("Imported {} dogs ({} already present) from {} in {} ms", imported.get(), duplicates.get(), file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new ImportResult(imported.get(), duplicates.get(), resumeAfter);
+    }
+
+    private void submit(ThreadPoolExecutor inserters, List<String> lines, long afterLine, long lastLine,
+                        Checkpoint checkpoint, AtomicLong imported, AtomicLong duplicates,
+                        AtomicReference<Exception> failure) {
+        inserters.execute(() -> {
+            if (failure.get() != null) {
+                return;
+            }
+            try {
+                List<Document> documents = new ArrayList<>(lines.size());
+                for (String line : lines) {
+                    documents.add(Document.parse(line));
+                }
+                long present = insert(documents);
+                imported.addAndGet(documents.size() - present);
+                duplicates.addAndGet(present);
+                checkpoint.complete(afterLine, lastLine);
+            } catch (Exception e) {
+                log.error("Importing lines {} to {} failed: {}", afterLine + 1, lastLine, e.getMessage());
+                failure.compareAndSet(null, e);
+            }
+        });
+    }
+
+    // Returns how many of the documents were already present
+    private long insert(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        try {
+            collection().insertMany(documents, new InsertManyOptions().ordered(false));
+            return 0;
+        } catch (MongoBulkWriteException e) {
+            List<BulkWriteError> errors = e.getWriteErrors();
+            if (errors.stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+            return errors.size();
+        }
+    }
+
+    private static Path checkpointPath(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Dog.class));
+    }
+
+    /**
+     * Tracks the chunks that completed out of order and records the last line before which every chunk is done.
+     */
+    private static final class Checkpoint {
+
+        private final Path path;
+        // First line of a completed chunk, exclusive, to its last line
+        private final Map<Long, Long> completed = new HashMap<>();
+        private long committed;
+
+        Checkpoint(Path path) throws IOException {
+            this.path = path;
+            this.committed = Files.exists(path) ? Long.parseLong(Files.readString(path).trim()) : 0;
+        }
+
+        synchronized long committed() {
+            return committed;
+        }
+
+        synchronized void complete(long afterLine, long lastLine) {
+            completed.put(afterLine, lastLine);
+            Long next = completed.remove(committed);
+            if (next == null) {
+                return;
+            }
+            while (next != null) {
+                committed = next;
+                next = completed.remove(committed);
+            }
+            try {
+                Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+                Files.writeString(temporary, Long.toString(committed));
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized void delete() throws IOException {
+            Files.deleteIfExists(path);
+        }
+    }
+}
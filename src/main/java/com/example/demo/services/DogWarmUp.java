@@ -0,0 +1,325 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogRequestDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Warms a freshly started instance before it takes traffic: opens the MongoDB connection pool to
+ * {@code mongo.pool.min-size}, runs {@link DogMapper} over synthetic dogs, preloads up to
+ * {@code dogs.warm-up.preload-size} dogs into the {@link DogCache} through {@code /dogs/batch}, and then sends
+ * {@code dogs.warm-up.rounds} rounds of read requests to the application's own port, so the first real
+ * requests find compiled code, open connections and loaded Jackson serializers.
+ * <p>
+ * Runs in the background once the application is ready. As the {@code dogWarmUp} health indicator, part of the
+ * readiness group, it reports {@code OUT_OF_SERVICE} until the warm-up is finished, failed or has run for
+ * {@code dogs.warm-up.budget}, whichever comes first: serving cold is better than not serving at all.
+ * Only reads are sent, so no data is written.
+ */
+@Component
+@Slf4j
+public class DogWarmUp implements HealthIndicator {
+
+    private static final String DOGS_PATH = "/v1/examples/dogs";
+    private static final String CLIENT_ID = "warm-up";
+    // Never a dog id, exercises the 404 path
+    private static final String MISSING_ID = "warm-up-missing";
+    private static final Document PING = new Document("ping", 1);
+    private static final int MAX_POOL_ROUNDS = 5;
+    private static final int LOOKUPS_PER_ROUND = 5;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate;
+    private final DogMapper dogMapper;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration budget;
+    private final int rounds;
+    private final int preloadSize;
+    private final int maxBatchIds;
+    private final int minPoolSize;
+    private final String clientHeader;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private volatile long deadline;
+    private volatile boolean started;
+    private volatile Health result;
+
+    // Only touched by the warm-up thread, published through result
+    private int requests;
+    private int unexpected;
+    private int preloaded;
+
+    public DogWarmUp(MongoTemplate mongoTemplate,
+                     ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate,
+                     DogMapper dogMapper,
+                     ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     @Value("${dogs.warm-up.enabled:false}") boolean enabled,
+                     @Value("${dogs.warm-up.budget:PT30S}") Duration budget,
+                     @Value("${dogs.warm-up.rounds:100}") int rounds,
+                     @Value("${dogs.warm-up.preload-size:1000}") int preloadSize,
+                     @Value("${dogs.batch.max-ids:100}") int maxBatchIds,
+                     @Value("${mongo.pool.min-size:0}") int minPoolSize,
+                     @Value("${dogs.traffic.client-header:X-Client-Id}") String clientHeader) {
+        this.mongoTemplate = mongoTemplate;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.dogMapper = dogMapper;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.budget = budget;
+        this.rounds = rounds;
+        this.preloadSize = preloadSize;
+        this.maxBatchIds = maxBatchIds;
+        this.minPoolSize = minPoolSize;
+        this.clientHeader = clientHeader;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        Integer port = event.getApplicationContext().getEnvironment().getProperty("local.server.port", Integer.class);
+        // Without a web server, e.g. in export/import mode, nothing will be served
+        if (!enabled || port == null) {
+            return;
+        }
+        boolean reactive = event.getSpringApplication().getWebApplicationType() == WebApplicationType.REACTIVE;
+        start(port, reactive);
+    }
+
+    void start(Integer port, boolean reactive) {
+        startBudget();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dog-warm-up-");
+        threadFactory.setDaemon(true);
+        threadFactory.newThread(() -> run(port, reactive)).start();
+    }
+
+    void startBudget() {
+        deadline = System.nanoTime() + budget.toNanos();
+        started = true;
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+        Health finished = result;
+        if (finished != null) {
+            return finished;
+        }
+        if (started && remainingNanos() <= 0) {
+            return Health.up().withDetail("budgetExceeded", true).build();
+        }
+        return Health.outOfService().build();
+    }
+
+    void run(Integer port, boolean reactive) {
+        long start = System.nanoTime();
+        try {
+            OptionalDouble pooled = warmConnectionPool(reactive);
+            warmMapper();
+            if (port != null) {
+                warmEndpoints("http://localhost:" + port + DOGS_PATH);
+            }
+            long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Warm-up finished in {} ms: {} pooled connections, {} requests ({} unexpected), {} dogs preloaded",
+                    tookMillis, pooled.isPresent() ? (long) pooled.getAsDouble() : "unknown", requests, unexpected,
+                    preloaded);
+            result = Health.up()
+                    .withDetail("durationMs", tookMillis)
+                    .withDetail("requests", requests)
+                    .withDetail("unexpectedResponses", unexpected)
+                    .withDetail("preloaded", preloaded)
+                    .withDetail("budgetExceeded", remainingNanos() <= 0)
+                    .build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = Health.up().withDetail("error", "interrupted").build();
+        } catch (Exception e) {
+            log.warn("Warm-up failed after {} ms, reporting ready anyway",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e);
+            result = Health.up().withDetail("error", e.toString()).build();
+        }
+    }
+
+    /**
+     * The driver only grows the pool to its minimum size in background maintenance. Concurrent pings each need
+     * a connection of their own, so rounds of them open the connections now, until the pool gauge reports the
+     * minimum or, if pool metrics are not published, after one round.
+     */
+    private OptionalDouble warmConnectionPool(boolean reactive) throws InterruptedException {
+        // On the calling thread first, so an unreachable server fails the warm-up once instead of in every ping
+        ping(reactive);
+        if (minPoolSize <= 1) {
+            return openConnections();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("dog-warm-up-ping-");
+        threadFactory.setDaemon(true);
+        ExecutorService pingers = Executors.newFixedThreadPool(minPoolSize, threadFactory);
+        try {
+            List<Callable<Object>> pings = Collections.nCopies(minPoolSize, () -> ping(reactive));
+            for (int round = 0; round < MAX_POOL_ROUNDS && remainingNanos() > 0; round++) {
+                pingers.invokeAll(pings, remainingNanos(), TimeUnit.NANOSECONDS);
+                OptionalDouble open = openConnections();
+                if (open.isEmpty() || open.getAsDouble() >= minPoolSize) {
+                    break;
+                }
+            }
+        } finally {
+            pingers.shutdownNow();
+        }
+        return openConnections();
+    }
+
+    private Document ping(boolean reactive) {
+        return reactive
+                ? reactiveMongoTemplate.getObject().executeCommand(PING).block()
+                : mongoTemplate.executeCommand(PING);
+    }
+
+    // One gauge per client and server; the largest is the pool the pings went to
+    private OptionalDouble openConnections() {
+        return meterRegistry.find("mongodb.driver.pool.size").gauges().stream()
+                .mapToDouble(Gauge::value)
+                .max();
+    }
+
+    private void warmMapper() {
+        List<Dog> dogs = IntStream.range(0, 100)
+                .mapToObj(i -> Dog.builder().id("warm-up-" + i).version(0).name("Dog " + i).breed("Labrador").build())
+                .toList();
+        DogRequestDto request = DogRequestDto.builder().name("Rex").breed("Labrador").build();
+        for (int i = 0; i < rounds * 10 && remainingNanos() > 0; i++) {
+            dogMapper.toDogResponseDtoList(dogs);
+            dogMapper.updateDogEntity(dogMapper.toDogEntity(request), request);
+        }
+    }
+
+    private void warmEndpoints(String baseUri) throws IOException, InterruptedException {
+        List<String> ids = preload(baseUri);
+        for (int round = 0; round < rounds && remainingNanos() > 0; round++) {
+            get(baseUri + "?limit=100");
+            for (int i = 0; i < LOOKUPS_PER_ROUND; i++) {
+                get(baseUri + "/" + (ids.isEmpty() ? MISSING_ID : ids.get((round * LOOKUPS_PER_ROUND + i) % ids.size())));
+            }
+            get(baseUri + "/" + MISSING_ID);
+            // Both share the search limits, so alternate them
+            if (round % 2 == 0) {
+                get(baseUri + "/search?name=A&limit=10");
+            } else {
+                get(baseUri + "/batch?ids=" + String.join(",", ids.isEmpty() ? List.of(MISSING_ID)
+                        : ids.subList(0, Math.min(10, ids.size()))));
+            }
+        }
+    }
+
+    /**
+     * Pages through the dogs by id and fetches each page with {@code /dogs/batch}, which caches them. Without
+     * access statistics surviving a restart, the first dogs by id stand in for the hot ones.
+     */
+    private List<String> preload(String baseUri) throws IOException, InterruptedException {
+        List<String> ids = new ArrayList<>();
+        String after = null;
+        while (ids.size() < preloadSize && remainingNanos() > 0) {
+            int limit = Math.min(maxBatchIds, preloadSize - ids.size());
+            HttpResponse<byte[]> response = get(baseUri + "?limit=" + limit + (after == null ? "" : "&after=" + after));
+            if (response == null || response.statusCode() != 200) {
+                break;
+            }
+            JsonNode page = readJson(response);
+            List<String> pageIds = new ArrayList<>();
+            page.path("items").forEach(dog -> pageIds.add(dog.path("id").asText()));
+            if (!pageIds.isEmpty()) {
+                HttpResponse<byte[]> batch = get(baseUri + "/batch?ids=" + String.join(",", pageIds));
+                if (batch != null && batch.statusCode() == 200) {
+                    preloaded += pageIds.size();
+                }
+                ids.addAll(pageIds);
+            }
+            after = page.path("nextCursor").textValue();
+            if (after == null) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    // null once the budget is spent
+    private HttpResponse<byte[]> get(String uri) throws IOException, InterruptedException {
+        long remaining = remainingNanos();
+        if (remaining <= 0) {
+            return null;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofNanos(remaining))
+                .header(clientHeader, CLIENT_ID)
+                // Large responses take the compressed path, as they do for most clients
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        requests++;
+        // 429 and 503 are the rate limits and bulkheads doing their job
+        int status = response.statusCode();
+        if (status >= 300 && status != 404 && status != 429 && status != 503) {
+            unexpected++;
+            log.debug("Warm-up request {} answered {}", uri, status);
+        }
+        return response;
+    }
+
+    private JsonNode readJson(HttpResponse<byte[]> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isPresent();
+        if (!gzip) {
+            return objectMapper.readTree(response.body());
+        }
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return objectMapper.readTree(body);
+        }
+    }
+
+    private long remainingNanos() {
+        return deadline - System.nanoTime();
+    }
+}
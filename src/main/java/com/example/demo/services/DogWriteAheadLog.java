@@ -0,0 +1,269 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogRequestDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log on local disk of the dogs accepted by {@link DogWriteBehindQueue}, so that dogs acknowledged
+ * with {@code 202} but not yet written to MongoDB survive a crash of the process.
+ * <p>
+ * The log is a sequence of memory-mapped segment files of {@code dogs.write-behind.wal.segment-size} bytes.
+ * Every record is {@code [length][CRC32C][id, name, breed]}; the length is written last, so a record torn by a
+ * crash reads as the end of its segment and a damaged one fails its checksum. A checkpoint file holds the
+ * position up to which records are known to be in MongoDB: {@link #checkpoint} advances it after each flush and
+ * deletes the segments before it, {@link #recover} returns every record after it on startup.
+ * <p>
+ * Writes to the mapped segments outlive a killed process. Surviving a power loss or kernel crash as well needs
+ * {@code dogs.write-behind.wal.sync=true}, which forces every record to disk before it is acknowledged.
+ */
+@Component
+@ConditionalOnProperty(prefix = "dogs.write-behind", name = {"enabled", "wal.enabled"}, havingValue = "true")
+@Slf4j
+public class DogWriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean sync;
+
+    private MappedByteBuffer segment;
+    private int segmentNumber = -1;
+
+    /**
+     * One recovered dog, with the position to {@link #checkpoint} once it is in MongoDB.
+     */
+    public record Entry(long position, String id, DogRequestDto request) {
+    }
+
+    public DogWriteAheadLog(@Value("${dogs.write-behind.wal.directory:data/wal}") Path directory,
+                            @Value("${dogs.write-behind.wal.segment-size:64MB}") DataSize segmentSize,
+                            @Value("${dogs.write-behind.wal.sync:false}") boolean sync) throws IOException {
+        this.directory = directory;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.sync = sync;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Reads every record after the checkpoint. New records go to a fresh segment, so a torn tail left by a
+     * crash is never appended to.
+     */
+    public synchronized List<Entry> recover() throws IOException {
+        long checkpoint = readCheckpoint();
+        List<Entry> entries = new ArrayList<>();
+        int lastSegment = -1;
+        for (int number : segmentNumbers()) {
+            lastSegment = number;
+            if (number < segmentOf(checkpoint)) {
+                continue;
+            }
+            int from = number == segmentOf(checkpoint) ? offsetOf(checkpoint) : 0;
+            readSegment(number, from, entries);
+        }
+        segmentNumber = lastSegment;
+        if (!entries.isEmpty()) {
+            log.info("Recovered {} dogs not yet written to MongoDB from {}", entries.size(), directory);
+        }
+        return entries;
+    }
+
+    /**
+     * Appends a record and returns the position after it.
+     */
+    public synchronized long append(String id, DogRequestDto request) {
+        byte[] payload = encode(id, request);
+        int recordSize = HEADER_BYTES + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes exceeds the segment size");
+        }
+        if (segment == null || segment.remaining() < recordSize) {
+            rotate();
+        }
+        int offset = segment.position();
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        segment.put(offset + HEADER_BYTES, payload);
+        segment.putInt(offset + Integer.BYTES, (int) crc.getValue());
+        // Written last: until then the record reads as the end of the segment
+        segment.putInt(offset, payload.length);
+        segment.position(offset + recordSize);
+        if (sync) {
+            segment.force(offset, recordSize);
+        }
+        return position(segmentNumber, offset + recordSize);
+    }
+
+    /**
+     * Records that everything up to {@code position} is in MongoDB and deletes the segments before it.
+     */
+    public synchronized void checkpoint(long position) {
+        try {
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+            buffer.putLong(position);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.array(), 0, Long.BYTES);
+            buffer.putInt((int) crc.getValue());
+            Files.write(temp, buffer.array());
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            for (int number : segmentNumbers()) {
+                if (number < segmentOf(position)) {
+                    Files.deleteIfExists(segmentPath(number));
+                }
+            }
+        } catch (IOException e) {
+            // Only means more records are replayed, and inserted again under the same ids, after a crash
+            log.warn("Could not checkpoint the write-ahead log at {}: {}", directory, e.toString());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    private void rotate() {
+        if (segment != null) {
+            segment.force();
+        }
+        segmentNumber++;
+        try (FileChannel channel = FileChannel.open(segmentPath(segmentNumber),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end grows the file, zero-filled
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create write-ahead log segment " + segmentNumber, e);
+        }
+    }
+
+    private void readSegment(int number, int from, List<Entry> entries) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int offset = from;
+        while (buffer.limit() - offset >= HEADER_BYTES) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                return;
+            }
+            if (length < 0 || length > buffer.limit() - offset - HEADER_BYTES) {
+                log.warn("Write-ahead log segment {} is damaged at offset {}, skipping its remainder", number, offset);
+                return;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                log.warn("Write-ahead log segment {} fails its checksum at offset {}, skipping its remainder",
+                        number, offset);
+                return;
+            }
+            offset += HEADER_BYTES + length;
+            entries.add(decode(position(number, offset), payload));
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, Long.BYTES);
+        if (buffer.limit() != Long.BYTES + Integer.BYTES || buffer.getInt(Long.BYTES) != (int) crc.getValue()) {
+            // Replaying everything that is left is safe, the ids make the inserts idempotent
+            log.warn("Ignoring damaged write-ahead log checkpoint in {}", directory);
+            return 0;
+        }
+        return buffer.getLong(0);
+    }
+
+    private List<Integer> segmentNumbers() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%010d%s", number, SEGMENT_SUFFIX));
+    }
+
+    // Positions pack the segment number and the offset in it, independent of the configured segment size
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private static byte[] encode(String id, DogRequestDto request) {
+        byte[][] fields = {utf8(id), utf8(request.getName()), utf8(request.getBreed())};
+        int size = 0;
+        for (byte[] field : fields) {
+            size += Integer.BYTES + field.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] field : fields) {
+            buffer.putInt(field.length).put(field);
+        }
+        return buffer.array();
+    }
+
+    private static Entry decode(long position, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        String id = readString(buffer);
+        String name = readString(buffer);
+        String breed = readString(buffer);
+        return new Entry(position, id, DogRequestDto.builder().name(name).breed(breed).build());
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
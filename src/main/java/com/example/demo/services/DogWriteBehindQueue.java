@@ -0,0 +1,316 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogRequestDto;
+import com.example.demo.models.DogResponseDto;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous creation of dogs for fire-and-forget producers.
+ * <p>
+ * {@link #enqueue} assigns the id up front and puts the dog into a bounded in-memory queue, answering
+ * {@code 429} once {@code dogs.write-behind.capacity} dogs are waiting. With the write-ahead log it also appends
+ * the dog to the log first, which is disk I/O, see {@link #isWriteAheadLogged()}. A single writer thread drains the
+ * queue in unordered bulk inserts of up to {@code flush-size} dogs, waiting at most {@code flush-interval}
+ * for a batch to fill up. Stopping the application (including {@code /actuator/shutdown}) stops accepting
+ * dogs once the web server has stopped and flushes everything still queued, waiting at most
+ * {@code shutdown-timeout} before the writer is interrupted.
+ * <p>
+ * Without the {@link DogWriteAheadLog} queued dogs are lost if the process dies, and a flush is dropped after
+ * {@code max-retries}. With it every dog is logged before it is acknowledged and replayed on the next start
+ * until it is written, so flushes are retried for as long as MongoDB is unavailable.
+ * <p>
+ * Only created with {@code dogs.write-behind.enabled}, so no writer thread runs where async creates are not used.
+ */
+@Service
+@ConditionalOnProperty(name = "dogs.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class DogWriteBehindQueue implements SmartLifecycle {
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(5);
+    // Lets an interrupted writer record what it drops before stop() returns
+    private static final Duration INTERRUPT_GRACE = Duration.ofSeconds(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final DogMapper dogMapper;
+    private final DogWriteAheadLog writeAheadLog;
+    private final int flushSize;
+    private final Duration flushInterval;
+    private final int maxRetries;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<Pending> queue;
+    // Keeps the log in queue order and only logs dogs the queue has room for
+    private final Object enqueueLock = new Object();
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+    private final Counter failed;
+
+    private volatile boolean accepting;
+    private volatile boolean stopping;
+    private volatile Thread writer;
+
+    @Autowired
+    public DogWriteBehindQueue(MongoTemplate mongoTemplate,
+                               DogMapper dogMapper,
+                               MeterRegistry registry,
+                               ObjectProvider<DogWriteAheadLog> writeAheadLog,
+                               @Value("${dogs.write-behind.capacity:10000}") int capacity,
+                               @Value("${dogs.write-behind.flush-size:500}") int flushSize,
+                               @Value("${dogs.write-behind.flush-interval:PT0.1S}") Duration flushInterval,
+                               @Value("${dogs.write-behind.max-retries:3}") int maxRetries,
+                               @Value("${dogs.write-behind.shutdown-timeout:PT20S}") Duration shutdownTimeout) {
+        this(mongoTemplate, dogMapper, registry, writeAheadLog.getIfAvailable(),
+                capacity, flushSize, flushInterval, maxRetries, shutdownTimeout);
+    }
+
+    DogWriteBehindQueue(MongoTemplate mongoTemplate, DogMapper dogMapper, MeterRegistry registry,
+                        DogWriteAheadLog writeAheadLog, int capacity, int flushSize, Duration flushInterval,
+                        int maxRetries, Duration shutdownTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.dogMapper = dogMapper;
+        this.writeAheadLog = writeAheadLog;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.maxRetries = maxRetries;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("dogs.writebehind.queue", queue, BlockingQueue::size)
+                .description("Dogs accepted but not yet written")
+                .baseUnit("dogs")
+                .register(registry);
+        this.flushTimer = Timer.builder("dogs.writebehind.flush")
+                .description("Latency of bulk inserts flushing the write-behind queue")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("dogs.writebehind.batch")
+                .description("Dogs written per flush")
+                .baseUnit("dogs")
+                .register(registry);
+        this.rejected = Counter.builder("dogs.writebehind.rejected")
+                .description("Dogs refused because the queue was full")
+                .register(registry);
+        this.failed = Counter.builder("dogs.writebehind.failed")
+                .description("Accepted dogs that could not be written")
+                .register(registry);
+    }
+
+    public DogResponseDto enqueue(DogRequestDto request) {
+        if (!accepting) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Asynchronous creation is not available");
+        }
+        Dog dog = dogMapper.toDogEntity(request);
+        dog.setId(new ObjectId().toHexString());
+        dog.setVersion(0);
+        synchronized (enqueueLock) {
+            // Only the writer takes from the queue, so the room checked here is still there below
+            if (queue.remainingCapacity() == 0) {
+                rejected.increment();
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many dogs waiting to be written");
+            }
+            long position = writeAheadLog == null ? -1 : writeAheadLog.append(dog.getId(), request);
+            queue.add(new Pending(dog, position));
+        }
+        return dogMapper.toDogResponseDto(dog);
+    }
+
+    /**
+     * Whether {@link #enqueue} appends to the {@link DogWriteAheadLog}, so it may block on disk and must not
+     * be called from an event loop.
+     */
+    public boolean isWriteAheadLogged() {
+        return writeAheadLog != null;
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(flushSize);
+        // After stop() the loop keeps going until the queue is empty
+        while (!stopping || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < flushSize) {
+                    queue.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                if (!flush(batch)) {
+                    // Shutting down while MongoDB is unavailable, the rest is replayed from the log
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                int unwritten = queue.size() + batch.size();
+                if (unwritten > 0 && writeAheadLog == null) {
+                    log.warn("Write-behind writer interrupted, dropping {} dogs", unwritten);
+                    failed.increment(unwritten);
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes one batch, returning {@code false} if it was left to the write-ahead log instead.
+     */
+    boolean flush(List<Pending> batch) throws InterruptedException {
+        batchSizes.record(batch.size());
+        List<Dog> dogs = batch.stream().map(Pending::dog).toList();
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class).insert(dogs).execute();
+                checkpoint(batch);
+                return true;
+            } catch (BulkOperationException e) {
+                // Per-document errors will not go away on retry; duplicate ids are dogs written by an earlier attempt
+                long lost = e.getErrors().stream()
+                        .map(BulkWriteError::getCategory)
+                        .filter(category -> category != ErrorCategory.DUPLICATE_KEY)
+                        .count();
+                if (lost > 0) {
+                    log.error("Write-behind flush could not insert {} of {} dogs: {}", lost, batch.size(), e.getMessage());
+                    failed.increment(lost);
+                }
+                checkpoint(batch);
+                return true;
+            } catch (DataAccessException e) {
+                if (writeAheadLog != null && stopping) {
+                    log.warn("Write-behind flush of {} dogs failed during shutdown, left in the write-ahead log",
+                            batch.size());
+                    return false;
+                }
+                if (writeAheadLog == null && attempt >= maxRetries) {
+                    log.error("Write-behind flush of {} dogs failed after {} attempts", batch.size(), attempt + 1, e);
+                    failed.increment(batch.size());
+                    return true;
+                }
+                log.warn("Write-behind flush of {} dogs failed, retrying: {}", batch.size(), e.getMessage());
+                Duration delay = flushInterval.multipliedBy(1L << Math.min(attempt, 16));
+                Thread.sleep(Math.min(delay.toMillis(), MAX_RETRY_DELAY.toMillis()));
+            } finally {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void checkpoint(List<Pending> batch) {
+        if (writeAheadLog != null) {
+            writeAheadLog.checkpoint(batch.get(batch.size() - 1).position());
+        }
+    }
+
+    @Override
+    public void start() {
+        stopping = false;
+        Thread thread = new Thread(this::drain, "dog-write-behind");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+        if (writeAheadLog != null) {
+            recover();
+        }
+        accepting = true;
+    }
+
+    // Queued ahead of new dogs, blocking while the writer makes room
+    private void recover() {
+        try {
+            for (DogWriteAheadLog.Entry entry : writeAheadLog.recover()) {
+                Dog dog = dogMapper.toDogEntity(entry.request());
+                dog.setId(entry.id());
+                dog.setVersion(0);
+                queue.put(new Pending(dog, entry.position()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the write-ahead log", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        stopping = true;
+        Thread thread = writer;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(shutdownTimeout.toMillis());
+            if (thread.isAlive()) {
+                // A flush stuck on MongoDB must not hold up the shutdown forever
+                log.warn("Write-behind queue not drained within {}, interrupting the writer with {} dogs queued{}",
+                        shutdownTimeout, queue.size(),
+                        writeAheadLog == null ? "" : ", they are replayed from the write-ahead log on the next start");
+                thread.interrupt();
+                thread.join(INTERRUPT_GRACE.toMillis());
+            } else {
+                log.info("Write-behind queue drained");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    // Below the web server's phases: started before it accepts requests, stopped (and drained) after it
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    record Pending(Dog dog, long position) {
+    }
+}
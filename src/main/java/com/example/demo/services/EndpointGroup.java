@@ -0,0 +1,47 @@
+package com.example.demo.services;
+
+/**
+ * Endpoints of {@code /v1/examples/dogs} that share rate limits and a concurrency bulkhead in {@link TrafficGuard},
+ * grouped by what they cost MongoDB.
+ */
+public enum EndpointGroup {
+
+    // GET /dogs and /dogs/stream: every dog in the collection
+    COLLECTION,
+    // GET /dogs?limit=
+    PAGE,
+    // GET /dogs/search and /dogs/batch: bounded multi-document reads
+    SEARCH,
+    // GET /dogs/{id}, mostly served from the dog cache
+    LOOKUP,
+    WRITE,
+    BULK;
+
+    static final String DOGS_PATH = "/v1/examples/dogs";
+
+    /**
+     * Returns the group of a request, or {@code null} for requests that are not limited.
+     */
+    public static EndpointGroup of(String method, String path, boolean paged) {
+        if (!path.startsWith(DOGS_PATH)) {
+            return null;
+        }
+        String rest = path.substring(DOGS_PATH.length());
+        if (rest.equals("/changes")) {
+            // Long-lived event streams, capped by dogs.changes.max-subscribers instead
+            return null;
+        }
+        if (rest.equals("/bulk")) {
+            return BULK;
+        }
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            return WRITE;
+        }
+        return switch (rest) {
+            case "", "/" -> paged ? PAGE : COLLECTION;
+            case "/stream" -> COLLECTION;
+            case "/search", "/batch" -> SEARCH;
+            default -> LOOKUP;
+        };
+    }
+}
@@ -1,70 +1,257 @@
 package com.example.demo.services;
 
 import com.example.demo.models.Dog;
+import com.example.demo.models.DogBatchItemDto;
+import com.example.demo.models.DogBatchResponseDto;
 import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogPageResponseDto;
 import com.example.demo.models.DogRequestDto;
 import com.example.demo.models.DogResponseDto;
+import com.example.demo.models.DogSearchResponseDto;
 import com.example.demo.repositories.DogRepository;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "dogs.service", histogram = true)
 public class ExampleService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Marks the per-request events of the dog services, which {@code logback-spring.xml} samples in the
+     * {@code prod} profile. Their fields are key-value pairs, written as JSON fields by the structured encoder.
+     */
+    static final Marker HOT_PATH = MarkerFactory.getMarker("HOT_PATH");
+
     private final DogRepository dogRepository;
     private final DogMapper dogMapper;
+    private final DogChunkedMapper dogChunkedMapper;
+    private final DogCache dogCache;
+    private final MongoTemplate mongoTemplate;
+    private final DogMetrics dogMetrics;
+    private final DogReadCoalescer readCoalescer;
+
+    @Value("${dogs.batch.max-ids:100}")
+    private int maxBatchIds = 100;
 
     // DTO-based methods for controller layer
     public List<DogResponseDto> getAllDogsAsDto() {
-        log.info("Fetching all dogs from the repository");
-        List<Dog> dogs = dogRepository.findAll();
-        return dogMapper.toDogResponseDtoList(dogs);
+        return getAllDogsWithVersion().dogs();
+    }
+
+    /**
+     * All dogs together with the collection version read just before them. They are shared with concurrent
+     * callers as a pair, so a caller that joins a read in progress gets the version that read started from.
+     */
+    public AllDogs getAllDogsWithVersion() {
+        log.atInfo().addMarker(HOT_PATH).log("Fetching all dogs");
+        // Shared with concurrent callers, so it must not be modified
+        return readCoalescer.coalesce(DogReadCoalescer.FIND_ALL, null, () -> {
+            DogCollectionVersion version = getDogCollectionVersion();
+            List<Dog> dogs = dogMetrics.record("findAll", () -> dogRepository.findAllBy());
+            dogMetrics.recordResultSize("findAll", dogs.size());
+            return new AllDogs(version, dogChunkedMapper.toDogResponseDtoList(dogs));
+        });
+    }
+
+    public DogCollectionVersion getDogCollectionVersion() {
+        return DogCollectionVersion.of(dogMetrics.record("version", () -> mongoTemplate
+                .aggregate(DogCollectionVersion.AGGREGATION, Document.class)
+                .getUniqueMappedResult()));
+    }
+
+    public DogPageResponseDto getDogPageAsDto(String after, int limit) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("after", after).addKeyValue("limit", limit)
+                .log("Fetching page of dogs");
+        if (limit < 1) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "limit must be greater than zero");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        List<Dog> dogs = dogMetrics.record("findPage", () -> after == null
+                ? dogRepository.findAllByOrderByIdAsc(Limit.of(pageSize))
+                : dogRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize)));
+        dogMetrics.recordResultSize("findPage", dogs.size());
+
+        // A full page means there may be more dogs after the last one returned
+        String nextCursor = dogs.size() == pageSize ? dogs.get(dogs.size() - 1).getId() : null;
+        return DogPageResponseDto.builder()
+                .items(dogMapper.toDogResponseDtoList(dogs))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Dogs of the given breed and/or whose name starts with {@code namePrefix}, ordered by name.
+     * With {@code countOnly} only the number of matches is returned.
+     */
+    public DogSearchResponseDto searchDogsAsDto(String breed, String namePrefix, int limit, boolean countOnly) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("breed", breed).addKeyValue("namePrefix", namePrefix)
+                .log("Searching dogs");
+        SearchFilter filter = SearchFilter.of(breed, namePrefix, limit, countOnly);
+        if (countOnly) {
+            long count = dogMetrics.record("count",
+                    () -> dogRepository.countByBreedAndNamePrefix(filter.breed(), filter.namePrefix()));
+            return DogSearchResponseDto.builder().count(count).build();
+        }
+        List<Dog> dogs = dogMetrics.record("search", () -> dogRepository.searchByBreedAndNamePrefix(
+                filter.breed(), filter.namePrefix(), Limit.of(filter.limit())));
+        dogMetrics.recordResultSize("search", dogs.size());
+        return DogSearchResponseDto.builder()
+                .items(dogMapper.toDogResponseDtoList(dogs))
+                .build();
+    }
+
+    public void streamAllDogsAsDto(Consumer<DogResponseDto> consumer) {
+        log.atInfo().addMarker(HOT_PATH).log("Streaming all dogs");
+        // Timed end to end, so this includes the time spent writing to the client
+        int streamed = dogMetrics.record("stream", () -> {
+            try (Stream<Dog> dogs = dogRepository.streamAllByOrderByIdAsc()) {
+                // Later chunks are mapped while earlier ones are being written
+                return dogChunkedMapper.forEachChunk(dogs.iterator(), chunk -> chunk.forEach(consumer));
+            }
+        });
+        dogMetrics.recordResultSize("stream", streamed);
     }
 
     public DogResponseDto getDogByIdAsDto(String id) {
-        log.info("Fetching dog with ID: {}", id);
-        Dog dog = dogRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Dog not found with id: " + id));
-        return dogMapper.toDogResponseDto(dog);
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("dogId", id).log("Fetching dog");
+        Optional<DogResponseDto> cached = dogCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // Taken before the query, so a write racing with it keeps the result out of the cache
+        long lastWrite = dogCache.lastWrite();
+        return readCoalescer.coalesce(DogReadCoalescer.FIND_BY_ID, id, () -> {
+            Dog dog = dogMetrics.record("findById", () -> dogRepository.findById(id)
+                    .orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.NOT_FOUND, "Dog not found with id: " + id)));
+            return dogMapper.toDogResponseDto(dog);
+        }, dto -> dogCache.putIfUnchangedSince(id, dto.getVersion(), dto, lastWrite));
+    }
+
+    /**
+     * The dogs with the given ids in request order, each marked as found or not. Ids that are not in the
+     * dog cache are read with a single {@code $in} query.
+     */
+    public DogBatchResponseDto getDogsByIdsAsDto(List<String> ids) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("count", ids.size()).log("Fetching dogs by ID");
+        Map<String, DogResponseDto> dogs = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : distinctBatchIds(ids, maxBatchIds)) {
+            dogCache.get(id).ifPresentOrElse(dog -> dogs.put(id, dog), () -> missing.add(id));
+        }
+        if (!missing.isEmpty()) {
+            // Taken before the query, like for single lookups
+            long lastWrite = dogCache.lastWrite();
+            List<Dog> found = dogMetrics.record("findAllById", () -> dogRepository.findAllById(missing));
+            dogMetrics.recordResultSize("findAllById", found.size());
+            for (Dog dog : found) {
+                DogResponseDto dto = dogMapper.toDogResponseDto(dog);
+                dogCache.putIfUnchangedSince(dog.getId(), dog.getVersion(), dto, lastWrite);
+                dogs.put(dog.getId(), dto);
+            }
+        }
+        return batchResponse(ids, dogs);
     }
 
     public DogResponseDto createDogFromDto(DogRequestDto requestDto) {
-        log.info("Creating a new dog from DTO: {}", requestDto);
+        // Field by field rather than the DTO's toString(), nothing is formatted unless the event is written
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("name", requestDto.getName())
+                .addKeyValue("breed", requestDto.getBreed()).log("Creating dog");
         Dog dog = dogMapper.toDogEntity(requestDto);
-        Dog savedDog = dogRepository.save(dog);
-        return dogMapper.toDogResponseDto(savedDog);
+        Dog savedDog = dogMetrics.record("save", () -> dogRepository.save(dog));
+        DogResponseDto dto = dogMapper.toDogResponseDto(savedDog);
+        readCoalescer.invalidate(savedDog.getId());
+        dogCache.put(savedDog.getId(), savedDog.getVersion(), dto);
+        return dto;
     }
 
     public DogResponseDto updateDogFromDto(String id, DogRequestDto requestDto) {
-        log.info("Updating dog with ID: {} using DTO: {}", id, requestDto);
-        Dog existingDog = dogRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "Dog not found with id: " + id));
+        return updateDogFromDto(id, requestDto, null);
+    }
+
+    /**
+     * Applies the update in a single findAndModify round-trip. When {@code expectedVersion} is given the
+     * update only matches while the stored dog is still at that version, otherwise it behaves like
+     * {@code @Version}-checked save of whatever is currently stored.
+     */
+    public DogResponseDto updateDogFromDto(String id, DogRequestDto requestDto, Integer expectedVersion) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("dogId", id).addKeyValue("expectedVersion", expectedVersion)
+                .log("Updating dog");
+        Query query = query(where("_id").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        Update update = new Update()
+                .set("name", requestDto.getName())
+                .set("breed", requestDto.getBreed())
+                .inc("version", 1)
+                .currentDate("lastModified");
 
-        dogMapper.updateDogEntity(existingDog, requestDto);
-        existingDog.setId(id); // Ensure the ID is preserved
-        Dog updatedDog = dogRepository.save(existingDog);
+        Dog updatedDog = dogMetrics.record("update", () -> {
+            Dog updated = mongoTemplate.findAndModify(
+                    query, update, FindAndModifyOptions.options().returnNew(true), Dog.class);
+            if (updated == null) {
+                // Only a failed versioned update needs the extra lookup to tell a conflict from a missing dog
+                if (expectedVersion != null && mongoTemplate.exists(query(where("_id").is(id)), Dog.class)) {
+                    throw new OptimisticLockingFailureException(
+                            "Dog with id: " + id + " is no longer at version " + expectedVersion);
+                }
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Dog not found with id: " + id);
+            }
+            return updated;
+        });
 
-        return dogMapper.toDogResponseDto(updatedDog);
+        DogResponseDto dto = dogMapper.toDogResponseDto(updatedDog);
+        readCoalescer.invalidate(id);
+        dogCache.put(id, updatedDog.getVersion(), dto);
+        return dto;
     }
 
     public void deleteDogById(String id) {
-        log.info("Deleting dog with ID: {}", id);
-        // Check if dog exists before attempting deletion
-        if (!dogRepository.existsById(id)) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND, "Dog not found with id: " + id);
-        }
-        dogRepository.deleteById(id);
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("dogId", id).log("Deleting dog");
+        dogMetrics.record("delete", () -> {
+            DeleteResult result = mongoTemplate.remove(query(where("_id").is(id)), Dog.class);
+            readCoalescer.invalidate(id);
+            dogCache.evict(id);
+            if (result.getDeletedCount() == 0) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Dog not found with id: " + id);
+            }
+        });
     }
 
     // Legacy entity-based methods (kept for backward compatibility)
@@ -80,11 +267,67 @@ public class ExampleService {
 
     public Dog createDog(Dog dog) {
         log.info("Creating a new dog: {}", dog);
-        return dogRepository.save(dog);
+        Dog savedDog = dogRepository.save(dog);
+        readCoalescer.invalidate(savedDog.getId());
+        dogCache.evict(savedDog.getId());
+        return savedDog;
     }
 
     public void deleteDog(String id) {
         log.info("Deleting dog with ID: {}", id);
         dogRepository.deleteById(id);
+        readCoalescer.invalidate(id);
+        dogCache.evict(id);
+    }
+
+    /**
+     * Validates the ids of a multi-get, shared with {@link ReactiveExampleService}. Duplicates are only looked
+     * up once but count towards the limit.
+     */
+    static Set<String> distinctBatchIds(List<String> ids, int maxIds) {
+        if (ids.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids is required");
+        }
+        if (ids.size() > maxIds) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "At most " + maxIds + " ids can be requested at once");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id.isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must not be blank");
+        }
+        return new LinkedHashSet<>(ids);
+    }
+
+    static DogBatchResponseDto batchResponse(List<String> ids, Map<String, DogResponseDto> dogs) {
+        List<DogBatchItemDto> items = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            DogResponseDto dog = dogs.get(id);
+            items.add(DogBatchItemDto.builder().id(id).found(dog != null).dog(dog).build());
+        }
+        return DogBatchResponseDto.builder().items(items).build();
+    }
+
+    public record AllDogs(DogCollectionVersion version, List<DogResponseDto> dogs) {
+    }
+
+    /**
+     * Validated search parameters, shared with {@link ReactiveExampleService}. Blank filters are ignored,
+     * but at least one is required so a search never scans the whole collection.
+     */
+    record SearchFilter(String breed, String namePrefix, int limit) {
+
+        static SearchFilter of(String breed, String namePrefix, int limit, boolean countOnly) {
+            String breedFilter = breed == null || breed.isBlank() ? null : breed;
+            String nameFilter = namePrefix == null || namePrefix.isBlank() ? null : namePrefix;
+            if (breedFilter == null && nameFilter == null) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST, "breed or name is required");
+            }
+            if (!countOnly && limit < 1) {
+                throw new ResponseStatusException(
+                        HttpStatus.BAD_REQUEST, "limit must be greater than zero");
+            }
+            return new SearchFilter(breedFilter, nameFilter, Math.min(limit, MAX_PAGE_SIZE));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,222 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogBatchResponseDto;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogPageResponseDto;
+import com.example.demo.models.DogRequestDto;
+import com.example.demo.models.DogResponseDto;
+import com.example.demo.models.DogSearchResponseDto;
+import com.example.demo.repositories.ReactiveDogRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.demo.services.ExampleService.HOT_PATH;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Non-blocking counterpart of {@link ExampleService} used by the WebFlux stack.
+ * Shares the mapper, DTOs, dog cache, {@link DogMetrics} timers and single-flight lookups by id, and keeps the
+ * same 404 and version semantics. Unlike the Servlet stack's list of all dogs, the stream of all dogs is not
+ * shared between concurrent requests, since each subscriber reads the cursor at its own pace.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveExampleService {
+
+    private final ReactiveDogRepository dogRepository;
+    private final DogMapper dogMapper;
+    private final DogCache dogCache;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final DogMetrics dogMetrics;
+    private final DogReadCoalescer readCoalescer;
+
+    @Value("${dogs.batch.max-ids:100}")
+    private int maxBatchIds = 100;
+
+    public Flux<DogResponseDto> getAllDogsAsDto() {
+        log.atInfo().addMarker(HOT_PATH).log("Streaming all dogs");
+        // Timed end to end, so this includes the time spent writing to the client
+        return dogMetrics.record("stream", dogRepository.streamAllByOrderByIdAsc())
+                .map(dogMapper::toDogResponseDto);
+    }
+
+    /**
+     * Read before the stream of all dogs is subscribed, see {@link DogCollectionVersion}.
+     */
+    public Mono<DogCollectionVersion> getDogCollectionVersion() {
+        return dogMetrics.record("version", mongoTemplate
+                        .aggregate(DogCollectionVersion.AGGREGATION, Document.class)
+                        .next())
+                .map(DogCollectionVersion::of)
+                .defaultIfEmpty(DogCollectionVersion.EMPTY);
+    }
+
+    public Mono<DogPageResponseDto> getDogPageAsDto(String after, int limit) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("after", after).addKeyValue("limit", limit)
+                .log("Fetching page of dogs");
+        if (limit < 1) {
+            return Mono.error(new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, "limit must be greater than zero"));
+        }
+        int pageSize = Math.min(limit, ExampleService.MAX_PAGE_SIZE);
+        Flux<Dog> dogs = dogMetrics.record("findPage", after == null
+                ? dogRepository.findAllByOrderByIdAsc(Limit.of(pageSize))
+                : dogRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize)));
+
+        return dogs.collectList().map(page -> DogPageResponseDto.builder()
+                .items(dogMapper.toDogResponseDtoList(page))
+                // A full page means there may be more dogs after the last one returned
+                .nextCursor(page.size() == pageSize ? page.get(page.size() - 1).getId() : null)
+                .build());
+    }
+
+    public Mono<DogSearchResponseDto> searchDogsAsDto(String breed, String namePrefix, int limit, boolean countOnly) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("breed", breed).addKeyValue("namePrefix", namePrefix)
+                .log("Searching dogs");
+        return Mono.fromCallable(() -> ExampleService.SearchFilter.of(breed, namePrefix, limit, countOnly))
+                .flatMap(filter -> countOnly
+                        ? dogMetrics.record("count",
+                                        dogRepository.countByBreedAndNamePrefix(filter.breed(), filter.namePrefix()))
+                                .map(count -> DogSearchResponseDto.builder().count(count).build())
+                        : dogMetrics.record("search", dogRepository.searchByBreedAndNamePrefix(
+                                        filter.breed(), filter.namePrefix(), Limit.of(filter.limit())))
+                                .collectList()
+                                .map(dogs -> DogSearchResponseDto.builder()
+                                        .items(dogMapper.toDogResponseDtoList(dogs))
+                                        .build()));
+    }
+
+    public Mono<DogResponseDto> getDogByIdAsDto(String id) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("dogId", id).log("Fetching dog");
+        return Mono.justOrEmpty(dogCache.get(id))
+                .switchIfEmpty(Mono.defer(() -> {
+                    // Taken before the query, so a write racing with it keeps the result out of the cache
+                    long lastWrite = dogCache.lastWrite();
+                    return readCoalescer.coalesce(DogReadCoalescer.FIND_BY_ID, id,
+                            dogMetrics.record("findById", dogRepository.findById(id)
+                                            .switchIfEmpty(Mono.error(() -> notFound(id))))
+                                    .map(dogMapper::toDogResponseDto),
+                            dto -> dogCache.putIfUnchangedSince(id, dto.getVersion(), dto, lastWrite));
+                }));
+    }
+
+    public Mono<DogBatchResponseDto> getDogsByIdsAsDto(List<String> ids) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("count", ids.size()).log("Fetching dogs by ID");
+        return Mono.fromCallable(() -> ExampleService.distinctBatchIds(ids, maxBatchIds))
+                .flatMap(distinct -> {
+                    Map<String, DogResponseDto> dogs = new HashMap<>();
+                    List<String> missing = new ArrayList<>();
+                    for (String id : distinct) {
+                        dogCache.get(id).ifPresentOrElse(dog -> dogs.put(id, dog), () -> missing.add(id));
+                    }
+                    if (missing.isEmpty()) {
+                        return Mono.just(dogs);
+                    }
+                    // A single $in query for everything the cache did not have, subscribed right after
+                    // lastWrite is taken
+                    long lastWrite = dogCache.lastWrite();
+                    return dogMetrics.record("findAllById", dogRepository.findAllById(missing))
+                            .collectList()
+                            .map(found -> {
+                                for (Dog dog : found) {
+                                    DogResponseDto dto = dogMapper.toDogResponseDto(dog);
+                                    dogCache.putIfUnchangedSince(dog.getId(), dog.getVersion(), dto, lastWrite);
+                                    dogs.put(dog.getId(), dto);
+                                }
+                                return dogs;
+                            });
+                })
+                .map(dogs -> ExampleService.batchResponse(ids, dogs));
+    }
+
+    public Mono<DogResponseDto> createDogFromDto(DogRequestDto requestDto) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("name", requestDto.getName())
+                .addKeyValue("breed", requestDto.getBreed()).log("Creating dog");
+        return dogMetrics.record("save", dogRepository.save(dogMapper.toDogEntity(requestDto)))
+                .map(savedDog -> {
+                    DogResponseDto dto = dogMapper.toDogResponseDto(savedDog);
+                    readCoalescer.invalidate(savedDog.getId());
+                    dogCache.put(savedDog.getId(), savedDog.getVersion(), dto);
+                    return dto;
+                });
+    }
+
+    public Mono<DogResponseDto> updateDogFromDto(String id, DogRequestDto requestDto) {
+        return updateDogFromDto(id, requestDto, null);
+    }
+
+    public Mono<DogResponseDto> updateDogFromDto(String id, DogRequestDto requestDto, Integer expectedVersion) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("dogId", id).addKeyValue("expectedVersion", expectedVersion)
+                .log("Updating dog");
+        Query query = query(where("_id").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(where("version").is(expectedVersion));
+        }
+        Update update = new Update()
+                .set("name", requestDto.getName())
+                .set("breed", requestDto.getBreed())
+                .inc("version", 1)
+                .currentDate("lastModified");
+
+        return dogMetrics.record("update", mongoTemplate.findAndModify(
+                                query, update, FindAndModifyOptions.options().returnNew(true), Dog.class)
+                        .switchIfEmpty(Mono.defer(() -> updateFailure(id, expectedVersion))))
+                .map(updatedDog -> {
+                    DogResponseDto dto = dogMapper.toDogResponseDto(updatedDog);
+                    readCoalescer.invalidate(id);
+                    dogCache.put(id, updatedDog.getVersion(), dto);
+                    return dto;
+                });
+    }
+
+    public Mono<Void> deleteDogById(String id) {
+        log.atInfo().addMarker(HOT_PATH).addKeyValue("dogId", id).log("Deleting dog");
+        return dogMetrics.record("delete", mongoTemplate.remove(query(where("_id").is(id)), Dog.class)
+                .doOnNext(result -> {
+                    readCoalescer.invalidate(id);
+                    dogCache.evict(id);
+                })
+                .flatMap(result -> result.getDeletedCount() == 0
+                        ? Mono.<Void>error(notFound(id))
+                        : Mono.<Void>empty()));
+    }
+
+    private Mono<Dog> updateFailure(String id, Integer expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(notFound(id));
+        }
+        // Only a failed versioned update needs the extra lookup to tell a conflict from a missing dog
+        return mongoTemplate.exists(query(where("_id").is(id)), Dog.class)
+                .flatMap(exists -> Mono.<Dog>error(exists
+                        ? new OptimisticLockingFailureException(
+                                "Dog with id: " + id + " is no longer at version " + expectedVersion)
+                        : notFound(id)));
+    }
+
+    private static ResponseStatusException notFound(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Dog not found with id: " + id);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.demo.services;
+
+import com.example.demo.config.TrafficProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for the dog endpoints: rate limits per {@link EndpointGroup}, overall and per client, and a
+ * bulkhead capping the requests of each group in progress, so that clients hammering the expensive collection
+ * reads cannot take the MongoDB pool away from point lookups.
+ * <p>
+ * Rate limits are token buckets implemented as GCRA: the state of a bucket is a single theoretical arrival time
+ * advanced with compare-and-set, and per-client buckets live in a bounded Caffeine map, so admission never takes
+ * a lock. Refusals are counted as {@code dogs.traffic.rejected} by {@code endpoint} and {@code reason}
+ * ({@code client_rate}, {@code rate} or {@code concurrency}); {@code dogs.traffic.in-flight} shows bulkhead usage.
+ */
+public class TrafficGuard {
+
+    private final Map<EndpointGroup, Guard> guards = new EnumMap<>(EndpointGroup.class);
+
+    public TrafficGuard(TrafficProperties properties, MeterRegistry registry) {
+        Meter.MeterProvider<Counter> rejections = Counter.builder("dogs.traffic.rejected")
+                .description("Requests refused by rate limits or bulkheads")
+                .withRegistry(registry);
+        properties.endpoints().forEach((group, limits) ->
+                guards.put(group, new Guard(group, limits, properties.maxClients(), rejections, registry)));
+    }
+
+    /**
+     * Admits a request or throws {@link TrafficRejectedException}: {@code 429} over a rate limit, {@code 503}
+     * when the bulkhead is full. The returned permit must be released once the request is complete.
+     */
+    public Permit admit(EndpointGroup group, String client) {
+        Guard guard = guards.get(group);
+        return guard == null ? Permit.NONE : guard.admit(client);
+    }
+
+    public interface Permit {
+
+        Permit NONE = () -> {
+        };
+
+        // Safe to call more than once
+        void release();
+    }
+
+    private static final class Guard {
+
+        private final String endpoint;
+        private final Gcra rate;
+        private final AtomicLong arrival = new AtomicLong(System.nanoTime());
+        private final Gcra perClientRate;
+        private final Cache<String, AtomicLong> clientArrivals;
+        private final Semaphore bulkhead;
+        private final Meter.MeterProvider<Counter> rejections;
+
+        Guard(EndpointGroup group, TrafficProperties.Limits limits, int maxClients,
+              Meter.MeterProvider<Counter> rejections, MeterRegistry registry) {
+            this.endpoint = group.name().toLowerCase(Locale.ROOT);
+            this.rejections = rejections;
+            this.rate = Gcra.of(limits.rate(), limits.burst());
+            this.perClientRate = Gcra.of(limits.perClientRate(), limits.perClientBurst());
+            this.clientArrivals = perClientRate == null ? null : Caffeine.newBuilder()
+                    .maximumSize(maxClients)
+                    // An idle client's bucket is full again, the same as a new one
+                    .expireAfterAccess(Duration.ofNanos(perClientRate.toleranceNanos()).plusSeconds(1))
+                    .build();
+            if (limits.maxConcurrent() == null) {
+                this.bulkhead = null;
+            } else {
+                int maxConcurrent = limits.maxConcurrent();
+                this.bulkhead = new Semaphore(maxConcurrent);
+                Gauge.builder("dogs.traffic.in-flight", bulkhead, permits -> maxConcurrent - permits.availablePermits())
+                        .description("Requests in progress per bulkhead")
+                        .tag("endpoint", endpoint)
+                        .register(registry);
+            }
+        }
+
+        Permit admit(String client) {
+            long now = System.nanoTime();
+            if (perClientRate != null) {
+                AtomicLong clientArrival = clientArrivals.get(client, key -> new AtomicLong(now));
+                long wait = perClientRate.tryAcquire(clientArrival, now);
+                if (wait > 0) {
+                    throw reject("client_rate", HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+                }
+            }
+            if (rate != null) {
+                long wait = rate.tryAcquire(arrival, now);
+                if (wait > 0) {
+                    throw reject("rate", HttpStatus.TOO_MANY_REQUESTS, Duration.ofNanos(wait));
+                }
+            }
+            if (bulkhead == null) {
+                return Permit.NONE;
+            }
+            if (!bulkhead.tryAcquire()) {
+                throw reject("concurrency", HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(1));
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            return () -> {
+                if (released.compareAndSet(false, true)) {
+                    bulkhead.release();
+                }
+            };
+        }
+
+        private TrafficRejectedException reject(String reason, HttpStatus status, Duration retryAfter) {
+            rejections.withTags("endpoint", endpoint, "reason", reason).increment();
+            return new TrafficRejectedException(status, "Too many " + endpoint + " requests", retryAfter);
+        }
+    }
+
+    /**
+     * Generic cell rate algorithm: a request is admitted if the theoretical arrival time, pushed back by one
+     * emission interval per request, stays within {@code burst} intervals of now.
+     */
+    record Gcra(long emissionNanos, long toleranceNanos) {
+
+        static Gcra of(Double rate, Integer burst) {
+            if (rate == null) {
+                return null;
+            }
+            long emission = (long) (1_000_000_000L / rate);
+            return new Gcra(emission, emission * Math.max(1, burst == null ? 1 : burst));
+        }
+
+        /**
+         * Returns 0 if admitted, otherwise how many nanoseconds until a request would be.
+         */
+        long tryAcquire(AtomicLong arrival, long now) {
+            while (true) {
+                long current = arrival.get();
+                long next = (current - now > 0 ? current : now) + emissionNanos;
+                long wait = next - now - toleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogRequestDto;
+import com.example.demo.models.DogResponseDto;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic dogs shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String[] BREEDS = {"Labrador", "Beagle", "German Shepherd", "Golden Retriever", "Bulldog"};
+
+    private BenchmarkData() {
+    }
+
+    static List<Dog> dogs(int size) {
+        List<Dog> dogs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dogs.add(Dog.builder()
+                    .id(new ObjectId().toHexString())
+                    .version(i % 7)
+                    .name("Dog " + i)
+                    .breed(BREEDS[i % BREEDS.length])
+                    .build());
+        }
+        return dogs;
+    }
+
+    static List<DogResponseDto> responses(int size) {
+        List<DogResponseDto> responses = new ArrayList<>(size);
+        for (Dog dog : dogs(size)) {
+            responses.add(DogResponseDto.builder()
+                    .id(dog.getId())
+                    .name(dog.getName())
+                    .breed(dog.getBreed())
+                    .build());
+        }
+        return responses;
+    }
+
+    static DogRequestDto request(int i) {
+        return DogRequestDto.builder()
+                .name("Dog " + i)
+                .breed(BREEDS[i % BREEDS.length])
+                .build();
+    }
+}
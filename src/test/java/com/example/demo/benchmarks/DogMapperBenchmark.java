@@ -0,0 +1,100 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogResponseDto;
+import com.example.demo.services.DogChunkedMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping cost of the MapStruct list mapper used by the list endpoints, against
+ * {@link DogChunkedMapper}'s parallel chunks (default settings: 1024 dogs per chunk, one thread per processor,
+ * parallel from 10,000 dogs). The write benchmarks add Jackson serialization: the whole mapped list at once,
+ * or each chunk written as soon as it is mapped, as {@code GET /dogs/stream} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DogMapperBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private DogMapper dogMapper;
+    private DogChunkedMapper chunkedMapper;
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<Dog> dogs;
+
+    @Setup
+    public void setUp() {
+        dogMapper = Mappers.getMapper(DogMapper.class);
+        chunkedMapper = new DogChunkedMapper(dogMapper, 1024, 0, 10000);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, DogResponseDto.class));
+        dogs = BenchmarkData.dogs(size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        chunkedMapper.destroy();
+    }
+
+    @Benchmark
+    public List<DogResponseDto> toDogResponseDtoList() {
+        return dogMapper.toDogResponseDtoList(dogs);
+    }
+
+    @Benchmark
+    public List<DogResponseDto> chunkedToDogResponseDtoList() {
+        return chunkedMapper.toDogResponseDtoList(dogs);
+    }
+
+    @Benchmark
+    public void mapListThenWrite() throws IOException {
+        listWriter.writeValue(OutputStream.nullOutputStream(), dogMapper.toDogResponseDtoList(dogs));
+    }
+
+    @Benchmark
+    public void writeChunksAsMapped() throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            chunkedMapper.forEachChunk(dogs.iterator(), chunk -> {
+                try {
+                    for (DogResponseDto dto : chunk) {
+                        generator.writePOJO(dto);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogPageResponseDto;
+import com.example.demo.models.DogResponseDto;
+import com.example.demo.repositories.DogRepository;
+import com.example.demo.repositories.DogSearchRepositoryImpl;
+import com.example.demo.services.DogCache;
+import com.example.demo.services.DogChunkedMapper;
+import com.example.demo.services.DogMetrics;
+import com.example.demo.services.DogReadCoalescer;
+import com.example.demo.services.ExampleService;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExampleService CRUD methods against an embedded (flapdoodle) MongoDB, with and without the dog cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExampleServiceBenchmark {
+
+    private static final int SEEDED_DOGS = 1000;
+
+    // 0 disables caching so every lookup goes to MongoDB
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    private TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private MongoClient mongoClient;
+    private ExampleService exampleService;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongod = Mongod.instance().start(Version.Main.V6_0);
+        mongoClient = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, "benchmark");
+        DogRepository dogRepository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(DogRepository.class, new DogSearchRepositoryImpl(mongoTemplate));
+        DogMapper dogMapper = Mappers.getMapper(DogMapper.class);
+        exampleService = new ExampleService(
+                dogRepository,
+                dogMapper,
+                new DogChunkedMapper(dogMapper, 1024, 0, 10000),
+                new DogCache(cacheSize, Duration.ofMinutes(5)),
+                mongoTemplate,
+                new DogMetrics(new SimpleMeterRegistry()),
+                new DogReadCoalescer(Duration.ofSeconds(10), new SimpleMeterRegistry()));
+
+        ids = new ArrayList<>(SEEDED_DOGS);
+        for (int i = 0; i < SEEDED_DOGS; i++) {
+            ids.add(exampleService.createDogFromDto(BenchmarkData.request(i)).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mongoClient.close();
+        mongod.close();
+    }
+
+    @Benchmark
+    public DogResponseDto getDogById() {
+        return exampleService.getDogByIdAsDto(randomId());
+    }
+
+    @Benchmark
+    public List<DogResponseDto> getAllDogs() {
+        return exampleService.getAllDogsAsDto();
+    }
+
+    @Benchmark
+    public DogPageResponseDto getDogPage() {
+        return exampleService.getDogPageAsDto(null, 100);
+    }
+
+    @Benchmark
+    public DogResponseDto updateDog() {
+        return exampleService.updateDogFromDto(randomId(), BenchmarkData.request(ThreadLocalRandom.current().nextInt(SEEDED_DOGS)));
+    }
+
+    @Benchmark
+    public void createAndDeleteDog() {
+        DogResponseDto created = exampleService.createDogFromDto(BenchmarkData.request(0));
+        exampleService.deleteDogById(created.getId());
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
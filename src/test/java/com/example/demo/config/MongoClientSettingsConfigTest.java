@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MongoClientSettingsConfigTest {
+
+    @Test
+    void testAppliesPoolTimeoutCompressionAndReadPreference() {
+        // Given
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        // When
+        new MongoClientSettingsConfig().mongoClientTuning(
+                50, 5, 4,
+                Duration.ofSeconds(2), Duration.ofMinutes(5),
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10),
+                List.of("zstd", "snappy"), "secondaryPreferred")
+                .customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        // Then
+        assertThat(settings.getConnectionPoolSettings().getMaxSize()).isEqualTo(50);
+        assertThat(settings.getConnectionPoolSettings().getMinSize()).isEqualTo(5);
+        assertThat(settings.getConnectionPoolSettings().getMaxConnecting()).isEqualTo(4);
+        assertThat(settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS)).isEqualTo(2000);
+        assertThat(settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS)).isEqualTo(30000);
+        assertThat(settings.getClusterSettings().getServerSelectionTimeout(TimeUnit.MILLISECONDS)).isEqualTo(10000);
+        assertThat(settings.getCompressorList()).extracting(MongoCompressor::getName)
+                .containsExactly("zstd", "snappy");
+        assertThat(settings.getReadPreference()).isEqualTo(ReadPreference.secondaryPreferred());
+    }
+
+    @Test
+    void testRejectsUnknownCompressor() {
+        assertThatThrownBy(() -> MongoClientSettingsConfig.compressors(List.of("lz4")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MarkerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SamplingMarkerFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    @Test
+    void testKeepsOneInRateMarkedEvents() {
+        // Given
+        SamplingMarkerFilter filter = filter(10);
+
+        // When
+        List<FilterReply> replies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            replies.add(filter.decide(event(Level.INFO, true)));
+        }
+
+        // Then
+        assertThat(replies).filteredOn(reply -> reply == FilterReply.NEUTRAL).hasSize(10);
+        assertThat(replies).filteredOn(reply -> reply == FilterReply.DENY).hasSize(90);
+    }
+
+    @Test
+    void testUnmarkedEventsAndWarningsAreNotSampled() {
+        // Given
+        SamplingMarkerFilter filter = filter(1000);
+        filter.decide(event(Level.INFO, true));
+
+        // When / Then
+        assertThat(filter.decide(event(Level.INFO, false))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(event(Level.WARN, true))).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.decide(event(Level.INFO, true))).isEqualTo(FilterReply.DENY);
+    }
+
+    private SamplingMarkerFilter filter(int rate) {
+        SamplingMarkerFilter filter = new SamplingMarkerFilter();
+        filter.setContext(context);
+        filter.setMarker("HOT_PATH");
+        filter.setRate(rate);
+        filter.start();
+        return filter;
+    }
+
+    private LoggingEvent event(Level level, boolean hotPath) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerContext(context);
+        event.setLevel(level);
+        event.setMessage("Fetching dog");
+        if (hotPath) {
+            event.addMarker(MarkerFactory.getMarker("HOT_PATH"));
+        }
+        return event;
+    }
+}
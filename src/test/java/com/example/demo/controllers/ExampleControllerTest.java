@@ -1,22 +1,34 @@
 package com.example.demo.controllers;
 
+import com.example.demo.config.BinaryFormatsConfig;
 import com.example.demo.models.*;
+import com.example.demo.services.DogBulkService;
+import com.example.demo.services.DogCollectionVersion;
+import com.example.demo.services.DogWriteBehindQueue;
 import com.example.demo.services.ExampleService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -34,9 +46,15 @@ public class ExampleControllerTest {
     @MockitoBean
     private ExampleService exampleService;
 
+    @MockitoBean
+    private DogBulkService dogBulkService;
+
     @MockitoBean
     private DogMapper dogMapper;
 
+    @MockitoBean
+    private DogWriteBehindQueue dogWriteBehindQueue;
+
     @Test
     public void getAllDogs_ShouldReturnDogs() throws Exception {
         // Arrange
@@ -51,15 +69,201 @@ public class ExampleControllerTest {
         dto2.setName("Charlie");
 
         List<DogResponseDto> dogDtos = Arrays.asList(dto1, dto2);
+        DogCollectionVersion version = new DogCollectionVersion(2, 0, Instant.parse("2024-05-01T10:00:00Z"));
 
-        when(exampleService.getAllDogsAsDto()).thenReturn(dogDtos);
+        when(exampleService.getAllDogsWithVersion()).thenReturn(new ExampleService.AllDogs(version, dogDtos));
 
         // Act & Assert
         mockMvc.perform(get("/v1/examples/dogs"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, version.etag()))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
                 .andExpect(content().json(objectMapper.writeValueAsString(dogDtos)));
 
-        verify(exampleService, times(1)).getAllDogsAsDto();
+        verify(exampleService, times(1)).getAllDogsWithVersion();
+        verify(exampleService, never()).getDogCollectionVersion();
+    }
+
+    @Test
+    public void getAllDogs_Unchanged_ShouldReturn304() throws Exception {
+        // Arrange
+        DogCollectionVersion version = new DogCollectionVersion(2, 3, Instant.parse("2024-05-01T10:00:00Z"));
+        when(exampleService.getDogCollectionVersion()).thenReturn(version);
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs").header(HttpHeaders.IF_NONE_MATCH, version.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, version.etag()))
+                .andExpect(content().string(""));
+
+        verify(exampleService, never()).getAllDogsWithVersion();
+    }
+
+    @Test
+    public void getAllDogs_AfterDelete_ShouldNotMatchPreviousEtag() throws Exception {
+        // Arrange
+        DogResponseDto max = DogResponseDto.builder().id("1").name("Max").breed("Labrador").version(0).build();
+        Instant lastModified = Instant.parse("2024-05-01T10:00:00Z");
+        String previousEtag = new DogCollectionVersion(2, 3, lastModified).etag();
+        // Charlie was deleted since the client's last poll
+        DogCollectionVersion version = new DogCollectionVersion(1, 0, lastModified);
+        when(exampleService.getDogCollectionVersion()).thenReturn(version);
+        when(exampleService.getAllDogsWithVersion()).thenReturn(new ExampleService.AllDogs(version, List.of(max)));
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs").header(HttpHeaders.IF_NONE_MATCH, previousEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, version.etag()))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void getDogPage_ShouldReturnPageWithCursor() throws Exception {
+        // Arrange
+        DogResponseDto dto = new DogResponseDto();
+        dto.setId("2");
+        dto.setBreed("Beagle");
+        dto.setName("Charlie");
+
+        DogPageResponseDto page = DogPageResponseDto.builder()
+                .items(List.of(dto))
+                .nextCursor("2")
+                .build();
+
+        when(exampleService.getDogPageAsDto("1", 1)).thenReturn(page);
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs").param("limit", "1").param("after", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("2"))
+                .andExpect(jsonPath("$.nextCursor").value("2"));
+
+        verify(exampleService, times(1)).getDogPageAsDto("1", 1);
+        verify(exampleService, never()).getAllDogsWithVersion();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamAllDogs_ShouldWriteNdjson() throws Exception {
+        // Arrange
+        DogResponseDto dto1 = DogResponseDto.builder().id("1").breed("Labrador").name("Max").build();
+        DogResponseDto dto2 = DogResponseDto.builder().id("2").breed("Beagle").name("Charlie").build();
+
+        doAnswer(invocation -> {
+            Consumer<DogResponseDto> consumer = invocation.getArgument(0);
+            consumer.accept(dto1);
+            consumer.accept(dto2);
+            return null;
+        }).when(exampleService).streamAllDogsAsDto(any(Consumer.class));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/v1/examples/dogs/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(dto1) + "\n"
+                        + objectMapper.writeValueAsString(dto2) + "\n"));
+    }
+
+    @Test
+    public void streamAllDogs_AcceptSmile_ShouldWriteSmileValues() throws Exception {
+        // Arrange
+        DogResponseDto dto1 = DogResponseDto.builder().id("1").breed("Labrador").name("Max").build();
+        DogResponseDto dto2 = DogResponseDto.builder().id("2").breed("Beagle").name("Charlie").build();
+
+        doAnswer(invocation -> {
+            Consumer<DogResponseDto> consumer = invocation.getArgument(0);
+            consumer.accept(dto1);
+            consumer.accept(dto2);
+            return null;
+        }).when(exampleService).streamAllDogsAsDto(any(Consumer.class));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/v1/examples/dogs/stream")
+                        .accept(BinaryFormatsConfig.SMILE_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryFormatsConfig.SMILE_STREAM))
+                .andReturn().getResponse().getContentAsByteArray();
+        List<DogResponseDto> dogs = objectMapper.copyWith(new SmileFactory())
+                .readerFor(DogResponseDto.class)
+                .<DogResponseDto>readValues(body)
+                .readAll();
+        assertThat(dogs).containsExactly(dto1, dto2);
+    }
+
+    @Test
+    public void getDogById_AcceptSmile_ShouldReturnSmile() throws Exception {
+        // Arrange
+        DogResponseDto dto = DogResponseDto.builder().id("1").breed("Labrador").name("Max").version(0).build();
+        when(exampleService.getDogByIdAsDto("1")).thenReturn(dto);
+
+        // Act
+        byte[] body = mockMvc.perform(get("/v1/examples/dogs/1").accept(BinaryFormatsConfig.SMILE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryFormatsConfig.SMILE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        assertThat(objectMapper.copyWith(new SmileFactory()).readValue(body, DogResponseDto.class)).isEqualTo(dto);
+    }
+
+    @Test
+    public void searchDogs_ShouldReturnMatches() throws Exception {
+        // Arrange
+        DogResponseDto dto = DogResponseDto.builder().id("1").breed("Labrador").name("Max").build();
+        when(exampleService.searchDogsAsDto("Labrador", "Ma", 10, false))
+                .thenReturn(DogSearchResponseDto.builder().items(List.of(dto)).build());
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs/search")
+                        .param("breed", "Labrador").param("name", "Ma").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Max"))
+                .andExpect(jsonPath("$.count").doesNotExist());
+
+        verify(exampleService, never()).getDogByIdAsDto(any());
+    }
+
+    @Test
+    public void searchDogs_CountMode_ShouldReturnCountOnly() throws Exception {
+        // Arrange
+        when(exampleService.searchDogsAsDto("Labrador", null, 100, true))
+                .thenReturn(DogSearchResponseDto.builder().count(42L).build());
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs/search").param("breed", "Labrador").param("count", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(42))
+                .andExpect(jsonPath("$.items").doesNotExist());
+    }
+
+    @Test
+    public void getDogsByIds_ShouldReturnItemsInRequestOrder() throws Exception {
+        // Arrange
+        DogResponseDto dto = DogResponseDto.builder().id("1").breed("Labrador").name("Max").build();
+        when(exampleService.getDogsByIdsAsDto(List.of("1", "999")))
+                .thenReturn(DogBatchResponseDto.builder().items(List.of(
+                        DogBatchItemDto.builder().id("1").found(true).dog(dto).build(),
+                        DogBatchItemDto.builder().id("999").found(false).build())).build());
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs/batch").param("ids", "1,999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].dog.name").value("Max"))
+                .andExpect(jsonPath("$.items[1].id").value("999"))
+                .andExpect(jsonPath("$.items[1].found").value(false))
+                .andExpect(jsonPath("$.items[1].dog").doesNotExist());
+
+        verify(exampleService, never()).getDogByIdAsDto(any());
     }
 
     @Test
@@ -80,6 +284,22 @@ public class ExampleControllerTest {
         verify(exampleService, times(1)).getDogByIdAsDto("1");
     }
 
+    @Test
+    public void getDogById_ShouldReturnETagFromVersion() throws Exception {
+        // Arrange
+        DogResponseDto dto = DogResponseDto.builder().id("1").breed("Labrador").name("Max").version(3).build();
+        when(exampleService.getDogByIdAsDto("1")).thenReturn(dto);
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/examples/dogs/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+
+        mockMvc.perform(get("/v1/examples/dogs/1").header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     public void getDogById_NotFound_ShouldReturn404() throws Exception {
         // Arrange
@@ -140,6 +360,55 @@ public class ExampleControllerTest {
         verify(exampleService, times(1)).updateDogFromDto(eq("1"), any(DogRequestDto.class));
     }
 
+    @Test
+    public void updateDog_WithIfMatch_ShouldUpdateExpectedVersion() throws Exception {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().name("Updated Name").breed("Updated Breed").build();
+        DogResponseDto responseDto = DogResponseDto.builder()
+                .id("1").name("Updated Name").breed("Updated Breed").version(4).build();
+        when(exampleService.updateDogFromDto(eq("1"), any(DogRequestDto.class), eq(3))).thenReturn(responseDto);
+
+        // Act & Assert
+        mockMvc.perform(put("/v1/examples/dogs/1")
+                .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""));
+
+        verify(exampleService, never()).updateDogFromDto(eq("1"), any(DogRequestDto.class));
+    }
+
+    @Test
+    public void updateDog_StaleIfMatch_ShouldReturn412() throws Exception {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().name("Updated Name").breed("Updated Breed").build();
+        when(exampleService.updateDogFromDto(eq("1"), any(DogRequestDto.class), eq(3)))
+                .thenThrow(new OptimisticLockingFailureException("Dog with id: 1 is no longer at version 3"));
+
+        // Act & Assert
+        mockMvc.perform(put("/v1/examples/dogs/1")
+                .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void updateDog_ForeignIfMatch_ShouldReturn412() throws Exception {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().name("Updated Name").breed("Updated Breed").build();
+
+        // Act & Assert
+        mockMvc.perform(put("/v1/examples/dogs/1")
+                .header(HttpHeaders.IF_MATCH, "\"2-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyNoInteractions(exampleService);
+    }
+
     @Test
     public void updateDog_NotFound_ShouldReturn404() throws Exception {
         // Arrange
@@ -180,4 +449,110 @@ public class ExampleControllerTest {
 
         verify(exampleService, times(1)).deleteDogById("999");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createDogs_ShouldReturnPerItemResults() throws Exception {
+        // Arrange
+        List<DogRequestDto> requests = List.of(
+                DogRequestDto.builder().name("Rocky").breed("Bulldog").build(),
+                DogRequestDto.builder().name("").breed("Bulldog").build());
+
+        DogBulkResponseDto response = DogBulkResponseDto.builder()
+                .results(List.of(
+                        DogBulkItemResultDto.builder().index(0).id("3").status(BulkItemStatus.CREATED).build(),
+                        DogBulkItemResultDto.builder().index(1).status(BulkItemStatus.INVALID)
+                                .error("name: Name is required").build()))
+                .build();
+
+        when(dogBulkService.createDogs(anyList(), eq(false))).thenReturn(response);
+
+        // Act & Assert
+        mockMvc.perform(post("/v1/examples/dogs/bulk")
+                .param("ordered", "false")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.results[1].status").value("INVALID"));
+
+        verify(dogBulkService, times(1)).createDogs(anyList(), eq(false));
+    }
+
+    @Test
+    public void updateDogs_ShouldDefaultToOrdered() throws Exception {
+        // Arrange
+        List<DogBulkUpdateItemDto> items = List.of(
+                DogBulkUpdateItemDto.builder().id("1").version(0).name("Max").breed("Labrador").build());
+
+        when(dogBulkService.updateDogs(anyList(), eq(true))).thenReturn(DogBulkResponseDto.builder()
+                .results(List.of(DogBulkItemResultDto.builder().index(0).id("1")
+                        .status(BulkItemStatus.VERSION_CONFLICT).build()))
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(put("/v1/examples/dogs/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(items)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value("VERSION_CONFLICT"));
+
+        verify(dogBulkService, times(1)).updateDogs(anyList(), eq(true));
+    }
+
+    @Test
+    public void deleteDogs_ShouldReturnPerItemResults() throws Exception {
+        // Arrange
+        when(dogBulkService.deleteDogs(List.of("1", "999"), true)).thenReturn(DogBulkResponseDto.builder()
+                .results(List.of(
+                        DogBulkItemResultDto.builder().index(0).id("1").status(BulkItemStatus.DELETED).build(),
+                        DogBulkItemResultDto.builder().index(1).id("999").status(BulkItemStatus.NOT_FOUND).build()))
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(delete("/v1/examples/dogs/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of("1", "999"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[1].status").value("NOT_FOUND"));
+
+        verify(dogBulkService, times(1)).deleteDogs(List.of("1", "999"), true);
+        verify(exampleService, never()).deleteDogById(any());
+    }
+
+    @Test
+    public void streamDogChanges_Disabled_ShouldReturn404() throws Exception {
+        // Act & Assert - no DogChangeHub without dogs.changes.enabled
+        mockMvc.perform(get("/v1/examples/dogs/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void createDogAsync_ShouldReturnAccepted() throws Exception {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().name("Rocky").breed("Bulldog").build();
+        DogResponseDto queued = DogResponseDto.builder().id("665f1c2e9b1e8a3d4c5b6a79").name("Rocky").breed("Bulldog").build();
+        when(dogWriteBehindQueue.enqueue(any(DogRequestDto.class))).thenReturn(queued);
+
+        // Act & Assert
+        mockMvc.perform(post("/v1/examples/dogs").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("665f1c2e9b1e8a3d4c5b6a79"));
+
+        verify(exampleService, never()).createDogFromDto(any());
+    }
+
+    @Test
+    public void createDogAsync_QueueFull_ShouldReturn429() throws Exception {
+        // Arrange
+        when(dogWriteBehindQueue.enqueue(any(DogRequestDto.class)))
+                .thenThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many dogs waiting to be written"));
+
+        // Act & Assert
+        mockMvc.perform(post("/v1/examples/dogs").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(DogRequestDto.builder().name("Rocky").breed("Bulldog").build())))
+                .andExpect(status().isTooManyRequests());
+    }
+}
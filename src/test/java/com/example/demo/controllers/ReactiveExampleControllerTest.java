@@ -0,0 +1,339 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.BinaryFormatsConfig;
+import com.example.demo.models.*;
+import com.example.demo.services.DogBulkService;
+import com.example.demo.services.DogCollectionVersion;
+import com.example.demo.services.DogWriteBehindQueue;
+import com.example.demo.services.ReactiveExampleService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Mirrors ExampleControllerTest against the WebFlux stack so both implementations honour the same contract.
+ */
+@WebFluxTest(ReactiveExampleController.class)
+public class ReactiveExampleControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReactiveExampleService exampleService;
+
+    @MockitoBean
+    private DogBulkService dogBulkService;
+
+    @MockitoBean
+    private DogMapper dogMapper;
+
+    @MockitoBean
+    private DogWriteBehindQueue dogWriteBehindQueue;
+
+    private final DogResponseDto dto1 = DogResponseDto.builder().id("1").breed("Labrador").name("Max").build();
+    private final DogResponseDto dto2 = DogResponseDto.builder().id("2").breed("Beagle").name("Charlie").build();
+
+    @Test
+    public void getAllDogs_ShouldReturnDogs() {
+        // Arrange
+        DogCollectionVersion version = new DogCollectionVersion(2, 0, Instant.parse("2024-05-01T10:00:00Z"));
+        when(exampleService.getDogCollectionVersion()).thenReturn(Mono.just(version));
+        when(exampleService.getAllDogsAsDto()).thenReturn(Flux.just(dto1, dto2));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, version.etag())
+                .expectBodyList(DogResponseDto.class).value(dogs -> assertThat(dogs).containsExactly(dto1, dto2));
+
+        verify(exampleService, times(1)).getAllDogsAsDto();
+    }
+
+    @Test
+    public void getAllDogs_Unchanged_ShouldReturn304() {
+        // Arrange
+        DogCollectionVersion version = new DogCollectionVersion(2, 0, Instant.parse("2024-05-01T10:00:00Z"));
+        when(exampleService.getDogCollectionVersion()).thenReturn(Mono.just(version));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs")
+                .header(HttpHeaders.IF_NONE_MATCH, version.etag())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        verify(exampleService, never()).getAllDogsAsDto();
+    }
+
+    @Test
+    public void getDogPage_ShouldReturnPageWithCursor() {
+        // Arrange
+        when(exampleService.getDogPageAsDto("1", 1)).thenReturn(Mono.just(DogPageResponseDto.builder()
+                .items(List.of(dto2))
+                .nextCursor("2")
+                .build()));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs?limit=1&after=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo("2")
+                .jsonPath("$.nextCursor").isEqualTo("2");
+    }
+
+    @Test
+    public void streamAllDogs_ShouldWriteNdjson() {
+        // Arrange
+        when(exampleService.getAllDogsAsDto()).thenReturn(Flux.just(dto1, dto2));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(DogResponseDto.class).value(dogs -> assertThat(dogs).containsExactly(dto1, dto2));
+    }
+
+    @Test
+    public void streamAllDogs_AcceptSmile_ShouldWriteSmileValues() {
+        // Arrange
+        when(exampleService.getAllDogsAsDto()).thenReturn(Flux.just(dto1, dto2));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs/stream")
+                .accept(BinaryFormatsConfig.SMILE_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(BinaryFormatsConfig.SMILE_STREAM)
+                .expectBodyList(DogResponseDto.class).value(dogs -> assertThat(dogs).containsExactly(dto1, dto2));
+    }
+
+    @Test
+    public void getDogById_ShouldReturnDog() {
+        // Arrange
+        when(exampleService.getDogByIdAsDto("1")).thenReturn(Mono.just(dto1));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DogResponseDto.class).isEqualTo(dto1);
+
+        verify(exampleService, times(1)).getDogByIdAsDto("1");
+    }
+
+    @Test
+    public void getDogsByIds_ShouldReturnItemsInRequestOrder() {
+        // Arrange
+        when(exampleService.getDogsByIdsAsDto(List.of("1", "999")))
+                .thenReturn(Mono.just(DogBatchResponseDto.builder().items(List.of(
+                        DogBatchItemDto.builder().id("1").found(true).dog(dto1).build(),
+                        DogBatchItemDto.builder().id("999").found(false).build())).build()));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs/batch?ids=1&ids=999")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].dog.name").isEqualTo(dto1.getName())
+                .jsonPath("$.items[1].found").isEqualTo(false);
+
+        verify(exampleService, never()).getDogByIdAsDto(any());
+    }
+
+    @Test
+    public void getDogById_NotFound_ShouldReturn404() {
+        // Arrange
+        when(exampleService.getDogByIdAsDto("999")).thenReturn(Mono.error(
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Dog not found with id: 999")));
+
+        // Act & Assert
+        webTestClient.get().uri("/v1/examples/dogs/999")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void createDog_ShouldReturnCreatedDog() {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().breed("Bulldog").name("Rocky").build();
+        DogResponseDto responseDto = DogResponseDto.builder().id("3").breed("Bulldog").name("Rocky").build();
+        when(exampleService.createDogFromDto(any(DogRequestDto.class))).thenReturn(Mono.just(responseDto));
+
+        // Act & Assert
+        webTestClient.post().uri("/v1/examples/dogs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestDto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(DogResponseDto.class).isEqualTo(responseDto);
+
+        verify(exampleService, times(1)).createDogFromDto(any(DogRequestDto.class));
+    }
+
+    @Test
+    public void createDog_InvalidInput_ShouldReturn400() {
+        // Act & Assert
+        webTestClient.post().uri("/v1/examples/dogs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(DogRequestDto.builder().breed("Bulldog").build())
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(exampleService, never()).createDogFromDto(any(DogRequestDto.class));
+    }
+
+    @Test
+    public void updateDog_ShouldReturnUpdatedDog() {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().breed("Updated Breed").name("Updated Name").build();
+        DogResponseDto responseDto = DogResponseDto.builder().id("1").breed("Updated Breed").name("Updated Name").build();
+        when(exampleService.updateDogFromDto(eq("1"), any(DogRequestDto.class))).thenReturn(Mono.just(responseDto));
+
+        // Act & Assert
+        webTestClient.put().uri("/v1/examples/dogs/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestDto)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(DogResponseDto.class).isEqualTo(responseDto);
+    }
+
+    @Test
+    public void updateDog_NotFound_ShouldReturn404() {
+        // Arrange
+        DogRequestDto requestDto = DogRequestDto.builder().breed("Updated Breed").name("Updated Name").build();
+        when(exampleService.updateDogFromDto(eq("999"), any(DogRequestDto.class))).thenReturn(Mono.error(
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Dog not found with id: 999")));
+
+        // Act & Assert
+        webTestClient.put().uri("/v1/examples/dogs/999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requestDto)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void deleteDog_ShouldReturnNoContent() {
+        // Arrange
+        when(exampleService.deleteDogById("1")).thenReturn(Mono.empty());
+
+        // Act & Assert
+        webTestClient.delete().uri("/v1/examples/dogs/1")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(exampleService, times(1)).deleteDogById("1");
+    }
+
+    @Test
+    public void deleteDog_NotFound_ShouldReturn404() {
+        // Arrange
+        when(exampleService.deleteDogById("999")).thenReturn(Mono.error(
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Dog not found with id: 999")));
+
+        // Act & Assert
+        webTestClient.delete().uri("/v1/examples/dogs/999")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void createDogs_ShouldReturnPerItemResults() {
+        // Arrange
+        when(dogBulkService.createDogs(anyList(), eq(false))).thenReturn(DogBulkResponseDto.builder()
+                .results(List.of(DogBulkItemResultDto.builder().index(0).id("3").status(BulkItemStatus.CREATED).build()))
+                .build());
+
+        // Act & Assert
+        webTestClient.post().uri("/v1/examples/dogs/bulk?ordered=false")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(DogRequestDto.builder().breed("Bulldog").name("Rocky").build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.results[0].status").isEqualTo("CREATED");
+    }
+
+    @Test
+    public void streamDogChanges_Disabled_ShouldReturn404() {
+        // Act & Assert - no DogChangeHub without dogs.changes.enabled
+        webTestClient.get().uri("/v1/examples/dogs/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void createDogAsync_ShouldReturnAccepted() {
+        // Arrange
+        DogRequestDto request = DogRequestDto.builder().name("Rocky").breed("Bulldog").build();
+        DogResponseDto queued = DogResponseDto.builder().id("665f1c2e9b1e8a3d4c5b6a79").name("Rocky").breed("Bulldog").build();
+        when(dogWriteBehindQueue.enqueue(any(DogRequestDto.class))).thenReturn(queued);
+
+        // Act & Assert
+        webTestClient.post().uri("/v1/examples/dogs?async=true")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(DogResponseDto.class).isEqualTo(queued);
+
+        verify(exampleService, never()).createDogFromDto(any());
+    }
+
+    @Test
+    public void createDogAsync_WithWriteAheadLog_ShouldEnqueueOffEventLoop() {
+        // Arrange
+        DogResponseDto queued = DogResponseDto.builder().id("665f1c2e9b1e8a3d4c5b6a79").name("Rocky").breed("Bulldog").build();
+        AtomicReference<String> enqueuedOn = new AtomicReference<>();
+        when(dogWriteBehindQueue.isWriteAheadLogged()).thenReturn(true);
+        when(dogWriteBehindQueue.enqueue(any(DogRequestDto.class))).thenAnswer(invocation -> {
+            enqueuedOn.set(Thread.currentThread().getName());
+            return queued;
+        });
+
+        // Act & Assert
+        webTestClient.post().uri("/v1/examples/dogs?async=true")
+                .bodyValue(DogRequestDto.builder().name("Rocky").breed("Bulldog").build())
+                .exchange()
+                .expectStatus().isAccepted();
+
+        assertThat(enqueuedOn.get()).startsWith("boundedElastic");
+    }
+
+    @Test
+    public void createDogAsync_QueueFull_ShouldReturn429() {
+        // Arrange
+        when(dogWriteBehindQueue.enqueue(any()))
+                .thenThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many dogs waiting to be written"));
+
+        // Act & Assert
+        webTestClient.post().uri("/v1/examples/dogs?async=true")
+                .bodyValue(DogRequestDto.builder().name("Rocky").breed("Bulldog").build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.controllers;
+
+import com.example.demo.config.TrafficProperties;
+import com.example.demo.services.EndpointGroup;
+import com.example.demo.services.TrafficGuard;
+import com.example.demo.services.TrafficRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReactiveTrafficFilterTest {
+
+    private final TrafficGuard trafficGuard = mock(TrafficGuard.class);
+    private final TrafficProperties properties =
+            new TrafficProperties("X-Client-Id", Set.of("10.0.0.1"), null, Map.of());
+    private final ReactiveTrafficFilter filter = new ReactiveTrafficFilter(trafficGuard, properties);
+
+    @Test
+    void testRejectedRequestGetsStatusAndRetryAfter() {
+        // Given
+        when(trafficGuard.admit(any(), any())).thenThrow(new TrafficRejectedException(
+                HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded", Duration.ofMillis(2500)));
+        WebTestClient client = WebTestClient
+                .bindToWebHandler(exchange -> exchange.getResponse().setComplete())
+                .webFilter(filter)
+                .build();
+
+        // When / Then
+        client.get().uri("/v1/examples/dogs")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "3");
+    }
+
+    @Test
+    void testClientHeaderIgnoredUnlessFromTrustedProxy() {
+        // Given
+        when(trafficGuard.admit(any(), any())).thenReturn(TrafficGuard.Permit.NONE);
+        WebFilterChain chain = exchange -> Mono.empty();
+
+        // When
+        filter.filter(exchange("192.168.1.7"), chain).block();
+        filter.filter(exchange("10.0.0.1"), chain).block();
+
+        // Then - a client cannot choose its bucket, the load balancer can
+        verify(trafficGuard).admit(EndpointGroup.COLLECTION, "192.168.1.7");
+        verify(trafficGuard).admit(EndpointGroup.COLLECTION, "client-a");
+    }
+
+    private static MockServerWebExchange exchange(String remoteAddress) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/v1/examples/dogs")
+                .remoteAddress(new InetSocketAddress(remoteAddress, 43210))
+                .header("X-Client-Id", "client-a"));
+    }
+}
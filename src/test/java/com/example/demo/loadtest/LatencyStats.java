@@ -0,0 +1,64 @@
+package com.example.demo.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Raw latency samples for one operation on one worker thread. Not thread-safe; workers keep their own
+ * instance and the runner merges them once the run is over.
+ */
+final class LatencyStats {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private int errors;
+
+    void record(long latencyNanos, boolean success) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyStats other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + other.count));
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    Summary summarize(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(
+                count,
+                errors,
+                elapsedSeconds > 0 ? count / elapsedSeconds : 0,
+                percentileMillis(sorted, 50),
+                percentileMillis(sorted, 95),
+                percentileMillis(sorted, 99),
+                percentileMillis(sorted, 99.9),
+                count == 0 ? 0 : sorted[count - 1] / 1_000_000.0);
+    }
+
+    // Nearest-rank percentile
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+
+    record Summary(int count, int errors, double throughput,
+                   double p50Millis, double p95Millis, double p99Millis, double p999Millis, double maxMillis) {
+
+        double errorRate() {
+            return count == 0 ? 0 : (double) errors / count;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.models.DogRequestDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * HTTP load generator for {@code /v1/examples/dogs}, run by the {@code intTest} Maven profile.
+ * <p>
+ * For the {@code local} environment the application is started in-process against an embedded
+ * (flapdoodle) MongoDB on a random port; any other environment is driven at the given host and port.
+ * Worker threads issue a weighted mix of list/page/get/create/update/delete requests for a fixed
+ * duration, after which throughput and p50/p95/p99/p999 latencies are printed and written as JSON.
+ * The process exits non-zero when any of the configured SLO thresholds is breached, failing the build.
+ * <p>
+ * Usage: {@code LoadTestRunner <env> <host> <port> [--option=value ...]}, see {@link #DEFAULTS}.
+ */
+public final class LoadTestRunner {
+
+    static final Map<String, String> DEFAULTS = Map.of(
+            "duration", "PT30S",
+            "warmup", "PT5S",
+            "concurrency", "32",
+            "seed", "500",
+            "mix", "list:5,page:15,get:50,create:15,update:10,delete:5",
+            "slo.p99-ms", "250",
+            "slo.p999-ms", "1000",
+            "slo.max-error-rate", "0.01",
+            "slo.min-throughput", "0",
+            "report", "target/loadtest-report.json");
+
+    private static final String DOGS_PATH = "/v1/examples/dogs";
+    private static final String[] BREEDS = {"Labrador", "Beagle", "Poodle", "Bulldog", "Husky"};
+
+    enum Operation { LIST, PAGE, GET, CREATE, UPDATE, DELETE }
+
+    private final Map<String, String> options;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Operation[] mix;
+    // Ids known to exist; creates fill slots, deletes empty them
+    private final AtomicReferenceArray<String> ids;
+    private URI baseUri;
+
+    LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+        this.mix = parseMix(options.get("mix"));
+        this.ids = new AtomicReferenceArray<>(Math.max(Integer.parseInt(options.get("seed")) * 2, 1));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: LoadTestRunner <env> <host> <port> [--option=value ...]");
+            System.exit(2);
+        }
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        options.put("env", args[0]);
+        options.put("host", args[1]);
+        options.put("port", args[2]);
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                System.err.println("Ignoring malformed option " + arg);
+                continue;
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        // The embedded application keeps non-daemon threads alive, so exit explicitly
+        System.exit(new LoadTestRunner(options).run());
+    }
+
+    int run() throws Exception {
+        System.out.println("Load test options: " + options);
+        try (LocalTarget local = "local".equals(options.get("env")) ? LocalTarget.start() : null) {
+            baseUri = local != null
+                    ? URI.create("http://localhost:" + local.port() + DOGS_PATH)
+                    : URI.create(scheme(options.get("port")) + "://" + options.get("host") + ":"
+                            + options.get("port") + DOGS_PATH);
+            System.out.println("Target: " + baseUri);
+
+            seed();
+            drive(Duration.parse(options.get("warmup")));
+            Duration duration = Duration.parse(options.get("duration"));
+            Map<Operation, LatencyStats> stats = drive(duration);
+            return report(stats, duration.toNanos() / 1e9);
+        }
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        int seed = Integer.parseInt(options.get("seed"));
+        for (int i = 0; i < seed; i++) {
+            String id = create(ThreadLocalRandom.current());
+            if (id == null) {
+                throw new IllegalStateException("Seeding failed, is the target up at " + baseUri + "?");
+            }
+        }
+        System.out.println("Seeded " + seed + " dogs");
+    }
+
+    private Map<Operation, LatencyStats> drive(Duration duration) throws Exception {
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Map<Operation, LatencyStats>>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> work(deadline)));
+            }
+            Map<Operation, LatencyStats> merged = newStats();
+            for (Future<Map<Operation, LatencyStats>> future : futures) {
+                future.get().forEach((operation, stats) -> merged.get(operation).merge(stats));
+            }
+            return merged;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Map<Operation, LatencyStats> work(long deadline) {
+        Map<Operation, LatencyStats> stats = newStats();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            Operation operation = mix[random.nextInt(mix.length)];
+            long start = System.nanoTime();
+            boolean success;
+            try {
+                success = execute(operation, random);
+            } catch (IOException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            stats.get(operation).record(System.nanoTime() - start, success);
+        }
+        return stats;
+    }
+
+    // 404s on id-based requests are expected: another worker may have deleted the dog in between
+    private boolean execute(Operation operation, ThreadLocalRandom random) throws IOException, InterruptedException {
+        switch (operation) {
+            case LIST:
+                return send(HttpRequest.newBuilder(baseUri).GET()) == 200;
+            case PAGE:
+                String after = ids.get(random.nextInt(ids.length()));
+                URI page = URI.create(baseUri + "?limit=100" + (after == null ? "" : "&after=" + after));
+                return send(HttpRequest.newBuilder(page).GET()) == 200;
+            case GET:
+                int getStatus = send(HttpRequest.newBuilder(dogUri(randomId(random))).GET());
+                return getStatus == 200 || getStatus == 404;
+            case CREATE:
+                return create(random) != null;
+            case UPDATE:
+                int updateStatus = send(HttpRequest.newBuilder(dogUri(randomId(random)))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(body(random))));
+                return updateStatus == 200 || updateStatus == 404;
+            case DELETE:
+                int slot = random.nextInt(ids.length());
+                String id = ids.getAndSet(slot, null);
+                int deleteStatus = send(HttpRequest.newBuilder(dogUri(id == null ? randomId(random) : id)).DELETE());
+                return deleteStatus == 204 || deleteStatus == 404;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private String create(ThreadLocalRandom random) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(baseUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body(random)))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 201) {
+            return null;
+        }
+        JsonNode created = objectMapper.readTree(response.body());
+        String id = created.path("id").asText(null);
+        if (id != null) {
+            ids.set(random.nextInt(ids.length()), id);
+        }
+        return id;
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private String randomId(ThreadLocalRandom random) {
+        // Probe a few slots before falling back to an id that is known not to exist
+        for (int attempt = 0; attempt < 4; attempt++) {
+            String id = ids.get(random.nextInt(ids.length()));
+            if (id != null) {
+                return id;
+            }
+        }
+        return "000000000000000000000000";
+    }
+
+    private URI dogUri(String id) {
+        return URI.create(baseUri + "/" + id);
+    }
+
+    private byte[] body(ThreadLocalRandom random) throws IOException {
+        return objectMapper.writeValueAsBytes(DogRequestDto.builder()
+                .name("Dog " + random.nextInt(1_000_000))
+                .breed(BREEDS[random.nextInt(BREEDS.length)])
+                .build());
+    }
+
+    private int report(Map<Operation, LatencyStats> stats, double elapsedSeconds) throws IOException {
+        LatencyStats total = new LatencyStats();
+        Map<String, LatencyStats.Summary> summaries = new LinkedHashMap<>();
+        stats.forEach((operation, operationStats) -> {
+            total.merge(operationStats);
+            summaries.put(operation.name().toLowerCase(), operationStats.summarize(elapsedSeconds));
+        });
+        LatencyStats.Summary overall = total.summarize(elapsedSeconds);
+        summaries.put("total", overall);
+
+        System.out.printf("%n%-8s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "op", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        summaries.forEach((name, summary) -> System.out.printf("%-8s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, summary.count(), summary.errors(), summary.throughput(), summary.p50Millis(),
+                summary.p95Millis(), summary.p99Millis(), summary.p999Millis(), summary.maxMillis()));
+
+        List<String> breaches = new ArrayList<>();
+        checkAtMost(breaches, "p99 latency (ms)", overall.p99Millis(), "slo.p99-ms");
+        checkAtMost(breaches, "p999 latency (ms)", overall.p999Millis(), "slo.p999-ms");
+        checkAtMost(breaches, "error rate", overall.errorRate(), "slo.max-error-rate");
+        double minThroughput = Double.parseDouble(options.get("slo.min-throughput"));
+        if (overall.throughput() < minThroughput) {
+            breaches.add(String.format("throughput %.1f req/s is below %.1f req/s", overall.throughput(), minThroughput));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("results", summaries);
+        report.put("sloBreaches", breaches);
+        Path reportPath = Path.of(options.get("report"));
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        objectMapper.writeValue(reportPath.toFile(), report);
+        System.out.println("\nReport written to " + reportPath.toAbsolutePath());
+
+        if (!breaches.isEmpty()) {
+            breaches.forEach(breach -> System.err.println("SLO breached: " + breach));
+            return 1;
+        }
+        System.out.println("All SLOs met");
+        return 0;
+    }
+
+    private void checkAtMost(List<String> breaches, String name, double actual, String option) {
+        double limit = Double.parseDouble(options.get(option));
+        if (actual > limit) {
+            breaches.add(String.format("%s %.4f exceeds %s", name, actual, options.get(option)));
+        }
+    }
+
+    private static Map<Operation, LatencyStats> newStats() {
+        Map<Operation, LatencyStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new LatencyStats());
+        }
+        return stats;
+    }
+
+    // "get:50,create:10" -> lookup table with one entry per weight unit
+    static Operation[] parseMix(String mix) {
+        List<Operation> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase());
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                table.add(operation);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty: " + mix);
+        }
+        return table.toArray(Operation[]::new);
+    }
+
+    private static String scheme(String port) {
+        return port.equals("443") || port.equals("8443") ? "https" : "http";
+    }
+
+    /**
+     * Embedded MongoDB plus the application on a random port, for the {@code local} environment.
+     */
+    private record LocalTarget(TransitionWalker.ReachedState<RunningMongodProcess> mongod,
+                               ConfigurableApplicationContext application) implements AutoCloseable {
+
+        static LocalTarget start() {
+            TransitionWalker.ReachedState<RunningMongodProcess> mongod = Mongod.instance().start(Version.Main.V6_0);
+            ConfigurableApplicationContext application = new SpringApplicationBuilder(DemoApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "spring.data.mongodb.uri=mongodb://" + mongod.current().getServerAddress() + "/loadtest",
+                            // Per-query debug logging would dominate the measured latencies
+                            "logging.level.org.springframework.data.mongodb=INFO",
+                            "logging.level.de.flapdoodle.embed=INFO",
+                            // A single load generator would mostly measure its own per-client rate limits
+                            "dogs.traffic.enabled=false")
+                    .run();
+            return new LocalTarget(mongod, application);
+        }
+
+        int port() {
+            return ((WebServerApplicationContext) application).getWebServer().getPort();
+        }
+
+        @Override
+        public void close() {
+            application.close();
+            mongod.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.repositories;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DogSearchQueriesTest {
+
+    @Test
+    void testFilterOnBreedAndNamePrefix() {
+        // When
+        Query query = DogSearchQueries.filter("Labrador", "Max");
+
+        // Then
+        Document filter = query.getQueryObject();
+        assertThat(filter.get("breed")).isEqualTo("Labrador");
+        assertThat(filter.get("name")).isInstanceOf(Pattern.class);
+        assertThat(((Pattern) filter.get("name")).pattern()).isEqualTo("^Max");
+    }
+
+    @Test
+    void testFilterIgnoresMissingBreed() {
+        assertThat(DogSearchQueries.filter(null, "Max").getQueryObject()).doesNotContainKey("breed");
+    }
+
+    @Test
+    void testSearchProjectsResponseFieldsSortedByName() {
+        // When
+        Query query = DogSearchQueries.search("Labrador", null, Limit.of(10));
+
+        // Then
+        assertThat(query.getFieldsObject()).containsOnlyKeys("name", "breed", "version");
+        assertThat(query.getSortObject()).containsEntry("name", 1);
+        assertThat(query.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void testEscapesRegexMetacharacters() {
+        // Then
+        assertThat(DogSearchQueries.escape("Mr. (Fluffy)*")).isEqualTo("Mr\\. \\(Fluffy\\)\\*");
+        assertThat(Pattern.compile("^" + DogSearchQueries.escape("a+b")).matcher("a+bc").find()).isTrue();
+    }
+}
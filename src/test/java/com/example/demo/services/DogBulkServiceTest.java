@@ -0,0 +1,259 @@
+package com.example.demo.services;
+
+import com.example.demo.models.BulkItemStatus;
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogBulkItemResultDto;
+import com.example.demo.models.DogBulkResponseDto;
+import com.example.demo.models.DogBulkUpdateItemDto;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogRequestDto;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DogBulkServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private BulkWriteResult bulkWriteResult;
+
+    @Mock
+    private DogCache dogCache;
+
+    private DogBulkService dogBulkService;
+
+    @BeforeEach
+    void setUp() {
+        dogBulkService = new DogBulkService(
+                mongoTemplate,
+                Mappers.getMapper(DogMapper.class),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                dogCache,
+                new DogReadCoalescer(Duration.ofSeconds(1), new SimpleMeterRegistry()),
+                2,
+                5);
+    }
+
+    @Test
+    void testCreateDogsUnordered() {
+        // Given
+        List<DogRequestDto> requests = List.of(
+                DogRequestDto.builder().name("Rex").breed("German Shepherd").build(),
+                DogRequestDto.builder().name("").breed("Bulldog").build(),
+                DogRequestDto.builder().name("Buddy").breed("Golden Retriever").build());
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+
+        // When
+        DogBulkResponseDto response = dogBulkService.createDogs(requests, false);
+
+        // Then
+        List<DogBulkItemResultDto> results = response.getResults();
+        assertThat(results).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.CREATED, BulkItemStatus.INVALID, BulkItemStatus.CREATED);
+        assertThat(results.get(0).getId()).isNotNull();
+        assertThat(results.get(1).getError()).contains("name");
+        // Two chunks of at most two items each
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test
+    void testCreateDogsOrderedStopsAtFirstFailure() {
+        // Given
+        List<DogRequestDto> requests = List.of(
+                DogRequestDto.builder().name("Rex").breed("German Shepherd").build(),
+                DogRequestDto.builder().name("Buddy").breed("Golden Retriever").build(),
+                DogRequestDto.builder().name("Max").breed("Bulldog").build());
+        BulkOperationException failure = mock(BulkOperationException.class);
+        when(failure.getErrors()).thenReturn(List.of(
+                new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        when(mongoTemplate.bulkOps(BulkMode.ORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(failure);
+
+        // When
+        DogBulkResponseDto response = dogBulkService.createDogs(requests, true);
+
+        // Then
+        assertThat(response.getResults()).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.FAILED, BulkItemStatus.SKIPPED, BulkItemStatus.SKIPPED);
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    void testUpdateDogsWithoutVersionReportsMissingDogs() {
+        // Given
+        List<DogBulkUpdateItemDto> items = List.of(
+                DogBulkUpdateItemDto.builder().id("1").name("Rex").breed("German Shepherd").build(),
+                DogBulkUpdateItemDto.builder().id("2").name("Buddy").breed("Golden Retriever").build());
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+        // Dog 2 no longer exists
+        when(mongoTemplate.find(any(Query.class), eq(Dog.class)))
+                .thenReturn(List.of(Dog.builder().id("1").version(1).build()));
+
+        // When
+        DogBulkResponseDto response = dogBulkService.updateDogs(items, false);
+
+        // Then
+        assertThat(response.getResults()).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.UPDATED, BulkItemStatus.NOT_FOUND);
+        verify(bulkOperations, times(2)).updateOne(any(Query.class), any(Update.class));
+        verify(dogCache).evict("1");
+        verify(dogCache).evict("2");
+    }
+
+    @Test
+    void testUpdateDogsWithVersionReportsConflictsAndMissingDogs() {
+        // Given
+        List<DogBulkUpdateItemDto> items = List.of(
+                DogBulkUpdateItemDto.builder().id("1").version(0).name("Rex").breed("German Shepherd").build(),
+                DogBulkUpdateItemDto.builder().id("2").version(0).name("Buddy").breed("Golden Retriever").build(),
+                DogBulkUpdateItemDto.builder().id("3").version(0).name("Max").breed("Bulldog").build());
+        DogBulkService threePerChunk = new DogBulkService(mongoTemplate, Mappers.getMapper(DogMapper.class),
+                Validation.buildDefaultValidatorFactory().getValidator(), dogCache,
+                new DogReadCoalescer(Duration.ofSeconds(1), new SimpleMeterRegistry()), 3, 5);
+        when(mongoTemplate.bulkOps(BulkMode.ORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+        // Dog 1 moved to the expected version + 1, dog 2 is at another version, dog 3 no longer exists
+        when(mongoTemplate.find(any(Query.class), eq(Dog.class))).thenReturn(List.of(
+                Dog.builder().id("1").version(1).build(), Dog.builder().id("2").version(3).build()));
+
+        // When
+        DogBulkResponseDto response = threePerChunk.updateDogs(items, true);
+
+        // Then - all three in one bulk write
+        assertThat(response.getResults()).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.UPDATED, BulkItemStatus.VERSION_CONFLICT, BulkItemStatus.NOT_FOUND);
+        verify(bulkOperations, times(3)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(1)).execute();
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Dog.class));
+    }
+
+    @Test
+    void testSameStaleVersionInTwoRequestsUpdatesOnce() {
+        // Given - two requests both expect version 0; the first one moves the dog to version 1
+        DogBulkUpdateItemDto first = DogBulkUpdateItemDto.builder()
+                .id("1").version(0).name("Rex").breed("German Shepherd").build();
+        DogBulkUpdateItemDto second = DogBulkUpdateItemDto.builder()
+                .id("1").version(0).name("Max").breed("Bulldog").build();
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1, 0);
+        when(mongoTemplate.find(any(Query.class), eq(Dog.class)))
+                .thenReturn(List.of(Dog.builder().id("1").version(1).build()));
+
+        // When
+        DogBulkResponseDto firstResponse = dogBulkService.updateDogs(List.of(first), false);
+        DogBulkResponseDto secondResponse = dogBulkService.updateDogs(List.of(second), false);
+
+        // Then - the dog is now at version 1, i.e. the second request's version + 1, and still a conflict
+        assertThat(firstResponse.getResults().get(0).getStatus()).isEqualTo(BulkItemStatus.UPDATED);
+        assertThat(secondResponse.getResults().get(0).getStatus()).isEqualTo(BulkItemStatus.VERSION_CONFLICT);
+    }
+
+    @Test
+    void testSameDogTwiceInChunkStartsAnotherBulkWrite() {
+        // Given
+        List<DogBulkUpdateItemDto> items = List.of(
+                DogBulkUpdateItemDto.builder().id("1").name("Rex").breed("German Shepherd").build(),
+                DogBulkUpdateItemDto.builder().id("1").version(1).name("Max").breed("Bulldog").build());
+        when(mongoTemplate.bulkOps(BulkMode.ORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+
+        // When
+        DogBulkResponseDto response = dogBulkService.updateDogs(items, true);
+
+        // Then
+        assertThat(response.getResults()).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.UPDATED, BulkItemStatus.UPDATED);
+        InOrder inOrder = inOrder(bulkOperations);
+        inOrder.verify(bulkOperations).updateOne(any(Query.class), any(Update.class));
+        inOrder.verify(bulkOperations).execute();
+        inOrder.verify(bulkOperations).updateOne(any(Query.class), any(Update.class));
+        inOrder.verify(bulkOperations).execute();
+    }
+
+    @Test
+    void testDeleteDogs() {
+        // Given
+        when(mongoTemplate.find(any(Query.class), eq(Dog.class)))
+                .thenReturn(List.of(Dog.builder().id("1").version(0).build()));
+        when(mongoTemplate.bulkOps(BulkMode.ORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getDeletedCount()).thenReturn(1);
+
+        // When
+        DogBulkResponseDto response = dogBulkService.deleteDogs(List.of("1", "999"), true);
+
+        // Then
+        assertThat(response.getResults()).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.DELETED, BulkItemStatus.NOT_FOUND);
+        verify(bulkOperations, times(1)).remove(any(Query.class));
+        verify(dogCache).evict("1");
+    }
+
+    @Test
+    void testConcurrentlyDeletedDogsAreNotReportedDeleted() {
+        // Given - both dogs existed when looked up, but another request deleted one of them first
+        when(mongoTemplate.find(any(Query.class), eq(Dog.class))).thenReturn(List.of(
+                Dog.builder().id("1").version(0).build(), Dog.builder().id("2").version(0).build()));
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenReturn(bulkWriteResult);
+        when(bulkWriteResult.getDeletedCount()).thenReturn(1);
+
+        // When
+        DogBulkResponseDto response = dogBulkService.deleteDogs(List.of("1", "2"), false);
+
+        // Then - which one this request deleted is unknown
+        assertThat(response.getResults()).extracting(DogBulkItemResultDto::getStatus)
+                .containsExactly(BulkItemStatus.NOT_FOUND, BulkItemStatus.NOT_FOUND);
+        verify(dogCache).evict("1");
+        verify(dogCache).evict("2");
+    }
+
+    @Test
+    void testRejectsTooManyItems() {
+        assertThatThrownBy(() -> dogBulkService.deleteDogs(Collections.nCopies(6, "1"), true))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(mongoTemplate);
+    }
+}
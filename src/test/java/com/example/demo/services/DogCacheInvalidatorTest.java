@@ -0,0 +1,106 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogChangeType;
+import com.example.demo.models.DogResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DogCacheInvalidatorTest {
+
+    @Mock
+    private DogChangeHub dogChangeHub;
+
+    @Mock
+    private DogChangeHub.Registration registration;
+
+    private DogCache dogCache;
+    private DogCacheInvalidator invalidator;
+
+    private final DogResponseDto rex = DogResponseDto.builder().id("1").name("Rex").version(0).build();
+
+    @BeforeEach
+    void setUp() {
+        dogCache = new DogCache(100, Duration.ofMinutes(5));
+        invalidator = new DogCacheInvalidator(dogChangeHub, dogCache, Duration.ofSeconds(5), Duration.ZERO);
+    }
+
+    @Test
+    void testUpdateReplacesCachedDog() {
+        // Given
+        dogCache.put("1", 0, rex);
+        DogResponseDto updated = DogResponseDto.builder().id("1").name("Max").version(1).build();
+
+        // When
+        invalidator.send("t1", DogChangeEventDto.builder().type(DogChangeType.UPDATE).id("1").dog(updated).build());
+
+        // Then
+        assertThat(dogCache.get("1")).contains(updated);
+    }
+
+    @Test
+    void testDeleteAndResetEvict() {
+        // Given
+        dogCache.put("1", 0, rex);
+        dogCache.put("2", 0, DogResponseDto.builder().id("2").version(0).build());
+
+        // When
+        invalidator.send("t1", DogChangeEventDto.builder().type(DogChangeType.DELETE).id("1").build());
+
+        // Then
+        assertThat(dogCache.get("1")).isEmpty();
+        assertThat(dogCache.get("2")).isPresent();
+
+        // When
+        invalidator.send("t2", DogChangeEventDto.builder().type(DogChangeType.RESET).build());
+
+        // Then
+        assertThat(dogCache.get("2")).isEmpty();
+    }
+
+    @Test
+    void testFallsBackToTtlWhileStreamLags() {
+        // Given - a healthy stream
+        when(dogChangeHub.subscribe(isNull(), any())).thenReturn(registration);
+        when(dogChangeHub.isStreaming()).thenReturn(true);
+        when(dogChangeHub.getLag()).thenReturn(Duration.ZERO);
+        invalidator.checkHealth();
+        dogCache.put("1", 0, rex);
+        assertThat(dogCache.get("1")).contains(rex);
+
+        // When
+        when(dogChangeHub.getLag()).thenReturn(Duration.ofMinutes(1));
+        invalidator.checkHealth();
+
+        // Then - entries are only served for the zero fallback TTL
+        assertThat(dogCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void testResubscribesAfterDisconnectFromLastEvent() {
+        // Given
+        when(dogChangeHub.subscribe(any(), any())).thenReturn(registration);
+        when(dogChangeHub.isStreaming()).thenReturn(true);
+        when(dogChangeHub.getLag()).thenReturn(Duration.ZERO);
+        invalidator.checkHealth();
+        invalidator.send("t1", DogChangeEventDto.builder().type(DogChangeType.INSERT).id("1").build());
+
+        // When
+        invalidator.close();
+        invalidator.checkHealth();
+
+        // Then
+        verify(dogChangeHub).subscribe("t1", invalidator);
+    }
+}
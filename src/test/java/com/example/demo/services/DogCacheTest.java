@@ -0,0 +1,177 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogResponseDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DogCacheTest {
+
+    private DogCache dogCache;
+
+    @BeforeEach
+    void setUp() {
+        dogCache = new DogCache(100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testPutAndGet() {
+        // Given
+        DogResponseDto dto = DogResponseDto.builder().id("1").name("Rex").breed("German Shepherd").build();
+
+        // When
+        dogCache.put("1", 0, dto);
+
+        // Then
+        assertThat(dogCache.get("1")).contains(dto);
+        assertThat(dogCache.get("2")).isEmpty();
+    }
+
+    @Test
+    void testOlderVersionDoesNotReplaceNewerEntry() {
+        // Given
+        DogResponseDto updated = DogResponseDto.builder().id("1").name("Rex II").breed("German Shepherd").build();
+        DogResponseDto stale = DogResponseDto.builder().id("1").name("Rex").breed("German Shepherd").build();
+        dogCache.put("1", 2, updated);
+
+        // When
+        dogCache.put("1", 1, stale);
+
+        // Then
+        assertThat(dogCache.get("1")).contains(updated);
+    }
+
+    @Test
+    void testEvict() {
+        // Given
+        dogCache.put("1", 0, DogResponseDto.builder().id("1").build());
+
+        // When
+        dogCache.evict("1");
+
+        // Then
+        assertThat(dogCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void testBindsHitAndMissMetrics() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dogCache.bindTo(registry);
+        dogCache.put("1", 0, DogResponseDto.builder().id("1").build());
+
+        // When
+        dogCache.get("1");
+        dogCache.get("2");
+
+        // Then
+        assertThat(registry.get("cache.gets").tag("cache", "dogs").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.gets").tag("cache", "dogs").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testRefreshOnlyReplacesCachedDogs() {
+        // Given
+        dogCache.put("1", 0, DogResponseDto.builder().id("1").name("Rex").build());
+        DogResponseDto updated = DogResponseDto.builder().id("1").name("Rex II").build();
+
+        // When
+        dogCache.refresh("1", 1, updated);
+        dogCache.refresh("2", 1, DogResponseDto.builder().id("2").build());
+
+        // Then
+        assertThat(dogCache.get("1")).contains(updated);
+        assertThat(dogCache.get("2")).isEmpty();
+    }
+
+    @Test
+    void testEntriesOlderThanMaxAgeAreMisses() {
+        // Given
+        DogResponseDto dto = DogResponseDto.builder().id("1").build();
+        dogCache.put("1", 0, dto);
+
+        // When / Then
+        dogCache.limitMaxAge(Duration.ZERO);
+        assertThat(dogCache.get("1")).isEmpty();
+        dogCache.clearMaxAge();
+        assertThat(dogCache.get("1")).contains(dto);
+    }
+
+    @Test
+    void testReadOverlappingEvictionIsNotCached() {
+        // Given - a read that started before the dog was deleted
+        long lastWrite = dogCache.lastWrite();
+        dogCache.evict("1");
+
+        // When
+        dogCache.putIfUnchangedSince("1", 0, DogResponseDto.builder().id("1").build(), lastWrite);
+
+        // Then - a read started after the delete is cached again
+        assertThat(dogCache.get("1")).isEmpty();
+        DogResponseDto reread = DogResponseDto.builder().id("1").name("Rex").build();
+        dogCache.putIfUnchangedSince("1", 0, reread, dogCache.lastWrite());
+        assertThat(dogCache.get("1")).contains(reread);
+    }
+
+    @Test
+    void testReadOverlappingWriteIsNotCachedEvenAtTheSameVersion() {
+        // Given - a write that does not know the new version, e.g. a bulk update, then caches what it wrote
+        long lastWrite = dogCache.lastWrite();
+        DogResponseDto written = DogResponseDto.builder().id("1").name("Rex II").build();
+        dogCache.put("1", 1, written);
+
+        // When
+        dogCache.putIfUnchangedSince("1", 1, DogResponseDto.builder().id("1").name("Rex").build(), lastWrite);
+
+        // Then
+        assertThat(dogCache.get("1")).contains(written);
+    }
+
+    @Test
+    void testReadOverlappingEvictAllIsNotCached() {
+        // Given
+        long lastWrite = dogCache.lastWrite();
+        dogCache.evictAll();
+
+        // When
+        dogCache.putIfUnchangedSince("1", 0, DogResponseDto.builder().id("1").build(), lastWrite);
+
+        // Then
+        assertThat(dogCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void testRefreshDoesNotReplaceEviction() {
+        // Given
+        dogCache.put("1", 0, DogResponseDto.builder().id("1").name("Rex").build());
+        dogCache.evict("1");
+
+        // When
+        dogCache.refresh("1", 1, DogResponseDto.builder().id("1").name("Rex II").build());
+
+        // Then
+        assertThat(dogCache.get("1")).isEmpty();
+    }
+
+    @Test
+    void testReadOverlappingRemoteUpdateOfUncachedDogIsNotCached() {
+        // Given - a read that started before another instance updated the dog, and returned the old version
+        long lastWrite = dogCache.lastWrite();
+        dogCache.refresh("1", 1, DogResponseDto.builder().id("1").name("Rex II").build());
+
+        // When
+        dogCache.putIfUnchangedSince("1", 0, DogResponseDto.builder().id("1").name("Rex").build(), lastWrite);
+
+        // Then - a read started after the update is cached again
+        assertThat(dogCache.get("1")).isEmpty();
+        DogResponseDto reread = DogResponseDto.builder().id("1").name("Rex II").build();
+        dogCache.putIfUnchangedSince("1", 1, reread, dogCache.lastWrite());
+        assertThat(dogCache.get("1")).contains(reread);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogChangeType;
+import com.example.demo.models.DogMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.commands.MongodArguments;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for DogChangeHub against an embedded MongoDB started as a single-node replica set,
+ * which change streams require.
+ * This test may not work in corporate environments with strict security policies.
+ * Use DogChangeHubTest for unit testing in restrictive environments.
+ */
+public class DogChangeHubIntegrationTest {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient mongoClient;
+
+    private MongoTemplate mongoTemplate;
+    private DogChangeHub hub;
+
+    @BeforeAll
+    static void startReplicaSet() throws InterruptedException {
+        mongod = Mongod.instance()
+                .withMongodArguments(Start.to(MongodArguments.class).initializedWith(MongodArguments.defaults()
+                        .withReplication(Storage.of("rs0", 10))
+                        .withUseNoJournal(false)))
+                .start(Version.Main.V6_0);
+        String address = mongod.current().getServerAddress().toString();
+        mongoClient = MongoClients.create("mongodb://" + address + "/?directConnection=true");
+        mongoClient.getDatabase("admin").runCommand(new Document("replSetInitiate", new Document("_id", "rs0")
+                .append("members", List.of(new Document("_id", 0).append("host", address)))));
+        // Writes fail until the node has elected itself
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!mongoClient.getDatabase("admin").runCommand(new Document("hello", 1))
+                .getBoolean("isWritablePrimary", false)) {
+            assertThat(System.nanoTime()).as("replica set primary elected").isLessThan(deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    @AfterAll
+    static void stopReplicaSet() {
+        mongoClient.close();
+        mongod.close();
+    }
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        mongoTemplate = new MongoTemplate(mongoClient, "changes");
+        mongoTemplate.dropCollection(Dog.class);
+        hub = new DogChangeHub(mongoTemplate, Mappers.getMapper(DogMapper.class),
+                16, 16, 10, Duration.ofHours(1), Runnable::run);
+        hub.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!hub.isStreaming()) {
+            assertThat(System.nanoTime()).as("change stream opened").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.stop();
+    }
+
+    @Test
+    void testPushesInsertUpdateAndDelete() throws InterruptedException {
+        // Given
+        QueueListener listener = new QueueListener();
+        hub.subscribe(null, listener);
+
+        // When
+        Dog dog = mongoTemplate.insert(Dog.builder().name("Rex").breed("German Shepherd").build());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(dog.getId())),
+                new Update().set("name", "Max").inc("version", 1), Dog.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(dog.getId())), Dog.class);
+
+        // Then
+        List<Received> received = listener.take(3);
+        assertThat(received).extracting(r -> r.event().getType())
+                .containsExactly(DogChangeType.INSERT, DogChangeType.UPDATE, DogChangeType.DELETE);
+        assertThat(received).extracting(r -> r.event().getId()).containsOnly(dog.getId());
+        assertThat(received.get(0).event().getDog().getName()).isEqualTo("Rex");
+        // Full document lookup turns the $set into the updated dog
+        assertThat(received.get(1).event().getDog().getName()).isEqualTo("Max");
+        assertThat(received.get(2).event().getDog()).isNull();
+        assertThat(received).extracting(Received::eventId).doesNotContainNull().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void testReconnectResumesAfterLastEventId() throws InterruptedException {
+        // Given - a client that saw only the first of two inserts
+        QueueListener first = new QueueListener();
+        DogChangeHub.Registration registration = hub.subscribe(null, first);
+        mongoTemplate.insert(Dog.builder().name("Rex").breed("German Shepherd").build());
+        mongoTemplate.insert(Dog.builder().name("Buddy").breed("Golden Retriever").build());
+        List<Received> seen = first.take(2);
+        registration.cancel();
+
+        // When
+        QueueListener reconnected = new QueueListener();
+        hub.subscribe(seen.get(0).eventId(), reconnected);
+
+        // Then
+        Received replayed = reconnected.take(1).get(0);
+        assertThat(replayed.eventId()).isEqualTo(seen.get(1).eventId());
+        assertThat(replayed.event().getDog().getName()).isEqualTo("Buddy");
+    }
+
+    @Test
+    void testLagStaysLowWhileNothingChanges() throws InterruptedException {
+        // Given - no writes at all after the stream opened
+        Thread.sleep(3000);
+
+        // When
+        Duration lag = hub.getLag();
+
+        // Then - empty batches keep confirming the stream is caught up
+        assertThat(lag).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void testLagGrowsOnceStopped() throws InterruptedException {
+        // Given
+        hub.stop();
+
+        // When
+        Thread.sleep(2500);
+
+        // Then
+        assertThat(hub.isStreaming()).isFalse();
+        assertThat(hub.getLag()).isGreaterThan(Duration.ofSeconds(2));
+    }
+
+    private record Received(String eventId, DogChangeEventDto event) {
+    }
+
+    private static class QueueListener implements DogChangeHub.Listener {
+
+        private final BlockingQueue<Received> received = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(String eventId, DogChangeEventDto event) {
+            received.add(new Received(eventId, event));
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        List<Received> take(int count) throws InterruptedException {
+            List<Received> events = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Received next = received.poll(10, TimeUnit.SECONDS);
+                assertThat(next).as("change event %d", i).isNotNull();
+                events.add(next);
+            }
+            return events;
+        }
+    }
+}
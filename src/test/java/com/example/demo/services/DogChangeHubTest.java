@@ -0,0 +1,149 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogChangeEventDto;
+import com.example.demo.models.DogChangeType;
+import com.example.demo.models.DogMapper;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class DogChangeHubTest {
+
+    private final List<Runnable> pendingDeliveries = new ArrayList<>();
+
+    @Test
+    void testPublishFansOutToAllSubscribers() {
+        // Given
+        DogChangeHub hub = hub(Runnable::run);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        hub.subscribe(null, first);
+        hub.subscribe(null, second);
+
+        // When
+        hub.publish("t1", event(DogChangeType.INSERT, "1"));
+
+        // Then
+        assertThat(first.eventIds).containsExactly("t1");
+        assertThat(second.eventIds).containsExactly("t1");
+    }
+
+    @Test
+    void testCancelledSubscriberReceivesNothing() {
+        // Given
+        DogChangeHub hub = hub(Runnable::run);
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(null, listener).cancel();
+
+        // When
+        hub.publish("t1", event(DogChangeType.INSERT, "1"));
+
+        // Then
+        assertThat(listener.eventIds).isEmpty();
+    }
+
+    @Test
+    void testSlowSubscriberIsDisconnectedWithoutAffectingOthers() {
+        // Given - deliveries for the slow subscriber are never run
+        DogChangeHub hub = hub(pendingDeliveries::add);
+        RecordingListener slow = new RecordingListener();
+        hub.subscribe(null, slow);
+
+        // When - one more event than its buffer holds
+        hub.publish("t1", event(DogChangeType.INSERT, "1"));
+        hub.publish("t2", event(DogChangeType.INSERT, "2"));
+        hub.publish("t3", event(DogChangeType.INSERT, "3"));
+
+        // Then
+        assertThat(slow.closed).isTrue();
+        pendingDeliveries.forEach(Runnable::run);
+        assertThat(slow.eventIds).isEmpty();
+    }
+
+    @Test
+    void testResubscribeReplaysEventsAfterLastEventId() {
+        // Given
+        DogChangeHub hub = hub(Runnable::run);
+        hub.publish("t1", event(DogChangeType.INSERT, "1"));
+        hub.publish("t2", event(DogChangeType.UPDATE, "1"));
+        RecordingListener listener = new RecordingListener();
+
+        // When
+        hub.subscribe("t1", listener);
+        hub.publish("t3", event(DogChangeType.DELETE, "1"));
+
+        // Then
+        assertThat(listener.eventIds).containsExactly("t2", "t3");
+    }
+
+    @Test
+    void testResubscribeWithUnknownEventIdGetsReset() {
+        // Given - t1 was pushed out of the replay buffer
+        DogChangeHub hub = hub(Runnable::run);
+        hub.publish("t1", event(DogChangeType.INSERT, "1"));
+        hub.publish("t2", event(DogChangeType.INSERT, "2"));
+        hub.publish("t3", event(DogChangeType.INSERT, "3"));
+        hub.publish("t4", event(DogChangeType.INSERT, "4"));
+        RecordingListener listener = new RecordingListener();
+
+        // When
+        hub.subscribe("t1", listener);
+
+        // Then
+        assertThat(listener.events).extracting(DogChangeEventDto::getType).containsExactly(DogChangeType.RESET);
+        assertThat(listener.eventIds).containsExactly("t4");
+    }
+
+    @Test
+    void testRejectsSubscribersOverLimit() {
+        // Given
+        DogChangeHub hub = hub(Runnable::run);
+        hub.subscribe(null, new RecordingListener());
+        hub.subscribe(null, new RecordingListener());
+
+        // When / Then
+        assertThatThrownBy(() -> hub.subscribe(null, new RecordingListener()))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    private static DogChangeHub hub(Executor deliveryExecutor) {
+        return new DogChangeHub(mock(MongoTemplate.class), Mappers.getMapper(DogMapper.class),
+                2, 3, 2, Duration.ofHours(1), deliveryExecutor);
+    }
+
+    private static DogChangeEventDto event(DogChangeType type, String id) {
+        return DogChangeEventDto.builder().type(type).id(id).build();
+    }
+
+    private static class RecordingListener implements DogChangeHub.Listener {
+
+        private final List<String> eventIds = new ArrayList<>();
+        private final List<DogChangeEventDto> events = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void send(String eventId, DogChangeEventDto event) {
+            eventIds.add(eventId);
+            events.add(event);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogResponseDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class DogChunkedMapperTest {
+
+    private final DogMapper dogMapper = spy(Mappers.getMapper(DogMapper.class));
+
+    // Chunks of two, two threads, lists of four dogs or more are mapped in parallel
+    private final DogChunkedMapper chunkedMapper = new DogChunkedMapper(dogMapper, 2, 2, 4);
+
+    @AfterEach
+    void tearDown() {
+        chunkedMapper.destroy();
+    }
+
+    @Test
+    void testShortListIsMappedByDogMapper() {
+        // Given
+        List<Dog> dogs = dogs(3);
+
+        // When
+        List<DogResponseDto> dtos = chunkedMapper.toDogResponseDtoList(dogs);
+
+        // Then
+        assertThat(dtos).extracting(DogResponseDto::getId).containsExactly("0", "1", "2");
+        verify(dogMapper).toDogResponseDtoList(dogs);
+    }
+
+    @Test
+    void testLongListKeepsOrder() {
+        // Given
+        List<Dog> dogs = dogs(101);
+
+        // When
+        List<DogResponseDto> dtos = chunkedMapper.toDogResponseDtoList(dogs);
+
+        // Then
+        assertThat(dtos).extracting(DogResponseDto::getId)
+                .containsExactlyElementsOf(IntStream.range(0, 101).mapToObj(String::valueOf).toList());
+        verify(dogMapper, never()).toDogResponseDtoList(anyList());
+    }
+
+    @Test
+    void testForEachChunkHandsOverChunksInOrder() {
+        // Given
+        List<List<DogResponseDto>> chunks = new ArrayList<>();
+
+        // When
+        int mapped = chunkedMapper.forEachChunk(dogs(7).iterator(), chunks::add);
+
+        // Then
+        assertThat(mapped).isEqualTo(7);
+        assertThat(chunks).extracting(List::size).containsExactly(2, 2, 2, 1);
+        assertThat(chunks.stream().flatMap(List::stream).map(DogResponseDto::getId).toList())
+                .containsExactly("0", "1", "2", "3", "4", "5", "6");
+    }
+
+    @Test
+    void testForEachChunkStopsWhenConsumerFails() {
+        // Given
+        List<List<DogResponseDto>> chunks = new ArrayList<>();
+
+        // When / Then - e.g. the client disconnected while the first chunk was written
+        assertThatThrownBy(() -> chunkedMapper.forEachChunk(dogs(20).iterator(), chunk -> {
+            chunks.add(chunk);
+            throw new IllegalStateException("Client gone");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(chunks).hasSize(1);
+    }
+
+    private static List<Dog> dogs(int size) {
+        return IntStream.range(0, size)
+                .mapToObj(i -> Dog.builder().id(String.valueOf(i)).version(0).name("Dog " + i).breed("Labrador").build())
+                .toList();
+    }
+}
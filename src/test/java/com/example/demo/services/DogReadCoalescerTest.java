@@ -0,0 +1,146 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DogReadCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DogReadCoalescer coalescer = new DogReadCoalescer(Duration.ofSeconds(5), registry);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final CountDownLatch reading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentIdenticalReadsShareOneQuery() throws Exception {
+        // Given - the first read is still waiting for MongoDB
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("findById", "1", this::blockingRead));
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            followers.add(executor.submit(() -> coalescer.coalesce("findById", "1", this::blockingRead)));
+        }
+        awaitJoined(10);
+        release.countDown();
+
+        // Then
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("Rex 1");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("Rex 1");
+        }
+        assertThat(reads).hasValue(1);
+    }
+
+    @Test
+    void testDifferentArgumentsAreNotShared() {
+        // When
+        String first = coalescer.coalesce("findById", "1", () -> "Rex");
+        String second = coalescer.coalesce("findById", "2", () -> "Buddy");
+
+        // Then
+        assertThat(first).isEqualTo("Rex");
+        assertThat(second).isEqualTo("Buddy");
+    }
+
+    @Test
+    void testReadsAfterInvalidationDoNotJoinEarlierRead() throws Exception {
+        // Given
+        List<String> cached = new ArrayList<>();
+        Future<String> leader = executor.submit(() ->
+                coalescer.coalesce("findById", "1", this::blockingRead, cached::add));
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When - the dog is written while the first read is in progress
+        coalescer.invalidate("1");
+        String afterWrite = coalescer.coalesce("findById", "1", () -> "Rex 2", cached::add);
+        release.countDown();
+
+        // Then - the read that overlapped the write is returned but not cached
+        assertThat(afterWrite).isEqualTo("Rex 2");
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("Rex 1");
+        assertThat(cached).containsExactly("Rex 2");
+    }
+
+    @Test
+    void testFailuresAreSharedWithWaitingReads() throws Exception {
+        // Given
+        Future<String> leader = executor.submit(() -> coalescer.coalesce("findById", "1", () -> {
+            blockingRead();
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Dog not found with id: 1");
+        }));
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> follower = executor.submit(() -> coalescer.coalesce("findById", "1", this::blockingRead));
+        awaitJoined(1);
+
+        // When
+        release.countDown();
+
+        // Then
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ResponseStatusException.class);
+        assertThat(registry.get("dogs.singleflight.joined")
+                .tags("operation", "findById", "outcome", "error").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testWaitingReadsTimeOut() throws Exception {
+        // Given
+        DogReadCoalescer impatient = new DogReadCoalescer(Duration.ofMillis(50), registry);
+        executor.submit(() -> impatient.coalesce("findAll", null, this::blockingRead));
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When / Then
+        assertThatThrownBy(() -> impatient.coalesce("findAll", null, this::blockingRead))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(registry.get("dogs.singleflight.joined")
+                .tags("operation", "findAll", "outcome", "timeout").counter().count()).isEqualTo(1.0);
+    }
+
+    private String blockingRead() {
+        int read = reads.incrementAndGet();
+        reading.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "Rex " + read;
+    }
+
+    private void awaitJoined(int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.waiting() < followers && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalescer.waiting()).isEqualTo(followers);
+    }
+}
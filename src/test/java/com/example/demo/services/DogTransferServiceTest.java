@@ -0,0 +1,218 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DogTransferServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private MongoCollection<Document> collection;
+
+    @TempDir
+    private Path directory;
+
+    private DogTransferService dogTransferService;
+
+    // Documents handed to insertMany, from any inserter thread
+    private final List<Document> inserted = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getCollectionName(Dog.class)).thenReturn("dogs");
+        when(mongoTemplate.getCollection("dogs")).thenReturn(collection);
+        dogTransferService = new DogTransferService(mongoTemplate, 2, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportWritesOneDocumentPerLine() throws IOException {
+        // Given
+        FindIterable<Document> found = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(collection.find()).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.batchSize(anyInt())).thenReturn(found);
+        when(found.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenReturn(true, true, false);
+        when(cursor.next()).thenReturn(dog("1", "Rex"), dog("2", "Buddy"));
+        Path file = directory.resolve("dogs.ndjson.gz");
+
+        // When
+        long exported = dogTransferService.export(file);
+
+        // Then
+        assertThat(exported).isEqualTo(2);
+        assertThat(read(file)).containsExactly(dog("1", "Rex").toJson(), dog("2", "Buddy").toJson());
+        assertThat(directory.resolve("dogs.ndjson.gz.part")).doesNotExist();
+        verify(cursor).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExportDeletesCheckpointOfReplacedFile() throws Exception {
+        // Given - an earlier import of the same path stopped after line 3
+        FindIterable<Document> found = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(collection.find()).thenReturn(found);
+        when(found.sort(any())).thenReturn(found);
+        when(found.batchSize(anyInt())).thenReturn(found);
+        when(found.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenReturn(true, true, false);
+        when(cursor.next()).thenReturn(dog("1", "Rex"), dog("2", "Buddy"));
+        Path file = write("dogs.ndjson.gz", 5);
+        Files.writeString(directory.resolve("dogs.ndjson.gz.checkpoint"), "3");
+        recordInserts();
+
+        // When
+        dogTransferService.export(file);
+        DogTransferService.ImportResult result = dogTransferService.importFrom(file);
+
+        // Then - the new file is imported from its first line
+        assertThat(directory.resolve("dogs.ndjson.gz.checkpoint")).doesNotExist();
+        assertThat(result.resumedAfterLine()).isZero();
+        assertThat(inserted).extracting(document -> document.getString("_id")).containsExactlyInAnyOrder("1", "2");
+    }
+
+    @Test
+    void testImportInsertsEveryChunkAndRemovesCheckpoint() throws Exception {
+        // Given
+        Path file = write("dogs.ndjson.gz", 5);
+        recordInserts();
+
+        // When
+        DogTransferService.ImportResult result = dogTransferService.importFrom(file);
+
+        // Then - chunks of two
+        assertThat(result.imported()).isEqualTo(5);
+        assertThat(inserted).extracting(document -> document.getString("_id"))
+                .containsExactlyInAnyOrder("1", "2", "3", "4", "5");
+        verify(collection, times(3)).insertMany(anyList(), any(InsertManyOptions.class));
+        assertThat(directory.resolve("dogs.ndjson.gz.checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void testImportResumesAfterCheckpoint() throws Exception {
+        // Given
+        Path file = write("dogs.ndjson.gz", 5);
+        Files.writeString(directory.resolve("dogs.ndjson.gz.checkpoint"), "3");
+        recordInserts();
+
+        // When
+        DogTransferService.ImportResult result = dogTransferService.importFrom(file);
+
+        // Then
+        assertThat(result.resumedAfterLine()).isEqualTo(3);
+        assertThat(inserted).extracting(document -> document.getString("_id")).containsExactlyInAnyOrder("4", "5");
+    }
+
+    @Test
+    void testDuplicatesCountAsAlreadyImported() throws Exception {
+        // Given
+        Path file = write("dogs.ndjson.gz", 2);
+        MongoBulkWriteException duplicate = mock(MongoBulkWriteException.class);
+        when(duplicate.getWriteErrors()).thenReturn(List.of(
+                new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        doThrow(duplicate).when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+
+        // When
+        DogTransferService.ImportResult result = dogTransferService.importFrom(file);
+
+        // Then
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailedImportKeepsCheckpoint() throws Exception {
+        // Given - the second chunk holds a line that is not JSON, one inserter so the first chunk is done by then
+        DogTransferService sequential = new DogTransferService(mongoTemplate, 2, 1);
+        Path file = directory.resolve("dogs.ndjson.gz");
+        writeLines(file, List.of(dog("1", "Rex").toJson(), dog("2", "Buddy").toJson(), "not json"));
+        recordInserts();
+
+        // When / Then
+        assertThatThrownBy(() -> sequential.importFrom(file))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("lines up to 2");
+        assertThat(Files.readString(directory.resolve("dogs.ndjson.gz.checkpoint"))).isEqualTo("2");
+    }
+
+    private void recordInserts() {
+        doAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            inserted.addAll(documents);
+            return null;
+        }).when(collection).insertMany(anyList(), any(InsertManyOptions.class));
+    }
+
+    private Path write(String name, int dogs) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= dogs; i++) {
+            lines.add(dog(String.valueOf(i), "Dog " + i).toJson());
+        }
+        Path file = directory.resolve(name);
+        writeLines(file, lines);
+        return file;
+    }
+
+    private static void writeLines(Path file, List<String> lines) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)),
+                StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static List<String> read(Path file) throws IOException {
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+                StandardCharsets.UTF_8)) {
+            return new BufferedReader(reader).lines().toList();
+        }
+    }
+
+    private static Document dog(String id, String name) {
+        return new Document("_id", id).append("name", name).append("breed", "Labrador").append("version", 0);
+    }
+}
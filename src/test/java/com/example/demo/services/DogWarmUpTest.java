@@ -0,0 +1,101 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DogWarmUpTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ObjectProvider<ReactiveMongoTemplate> reactiveMongoTemplate;
+
+    @Mock
+    private DogMapper dogMapper;
+
+    @Test
+    void testDisabledReportsUp() {
+        // Given
+        DogWarmUp warmUp = warmUp(false, Duration.ofSeconds(30));
+
+        // When
+        Health health = warmUp.health();
+
+        // Then
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("enabled", false);
+    }
+
+    @Test
+    void testOutOfServiceUntilWarmUpFinishes() {
+        // Given
+        DogWarmUp warmUp = warmUp(true, Duration.ofSeconds(30));
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        // When - no web server, so only the pool and the mapper are warmed
+        warmUp.startBudget();
+        warmUp.run(null, false);
+
+        // Then - one ping, then one round of three concurrent ones as no pool gauge is published
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmUp.health().getDetails()).containsEntry("budgetExceeded", false);
+        verify(mongoTemplate, times(4)).executeCommand(any(Document.class));
+        verify(dogMapper, times(20)).toDogResponseDtoList(anyList());
+    }
+
+    @Test
+    void testFailedWarmUpStillReportsReady() {
+        // Given
+        DogWarmUp warmUp = warmUp(true, Duration.ofSeconds(30));
+        when(mongoTemplate.executeCommand(any(Document.class))).thenThrow(new MongoTimeoutException("No server"));
+
+        // When
+        warmUp.startBudget();
+        warmUp.run(null, false);
+
+        // Then
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmUp.health().getDetails()).containsKey("error");
+        verify(mongoTemplate, times(1)).executeCommand(any(Document.class));
+        verifyNoInteractions(dogMapper);
+    }
+
+    @Test
+    void testReadyOnceBudgetIsSpent() {
+        // Given
+        DogWarmUp warmUp = warmUp(true, Duration.ZERO);
+
+        // When - the warm-up has started but not finished
+        warmUp.startBudget();
+
+        // Then
+        assertThat(warmUp.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(warmUp.health().getDetails()).containsEntry("budgetExceeded", true);
+    }
+
+    private DogWarmUp warmUp(boolean enabled, Duration budget) {
+        return new DogWarmUp(mongoTemplate, reactiveMongoTemplate, dogMapper, new ObjectMapper(),
+                new SimpleMeterRegistry(), enabled, budget, 2, 10, 100, 3, "X-Client-Id");
+    }
+}
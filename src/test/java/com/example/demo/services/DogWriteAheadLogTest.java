@@ -0,0 +1,121 @@
+package com.example.demo.services;
+
+import com.example.demo.models.DogRequestDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DogWriteAheadLogTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testRecoversRecordsAfterCheckpoint() throws IOException {
+        // Given
+        DogWriteAheadLog log = open();
+        log.recover();
+        long rex = log.append("1", request("Rex"));
+        log.append("2", request("Buddy"));
+        log.append("3", request("Max"));
+        log.checkpoint(rex);
+        log.close();
+
+        // When
+        List<DogWriteAheadLog.Entry> entries = open().recover();
+
+        // Then
+        assertThat(entries).extracting(DogWriteAheadLog.Entry::id).containsExactly("2", "3");
+        assertThat(entries.get(0).request()).isEqualTo(request("Buddy"));
+    }
+
+    @Test
+    void testRotatesSegmentsAndDeletesCheckpointedOnes() throws IOException {
+        // Given - room for about two records per segment
+        DogWriteAheadLog log = new DogWriteAheadLog(directory, DataSize.ofBytes(80), false);
+        log.recover();
+        long last = 0;
+        for (int i = 0; i < 6; i++) {
+            last = log.append(String.valueOf(i), request("Dog " + i));
+        }
+        assertThat(segments()).hasSizeGreaterThan(2);
+
+        // When
+        log.checkpoint(last);
+
+        // Then
+        assertThat(segments()).hasSize(1);
+        assertThat(new DogWriteAheadLog(directory, DataSize.ofBytes(80), false).recover()).isEmpty();
+    }
+
+    @Test
+    void testRecoveryStopsAtDamagedRecord() throws IOException {
+        // Given
+        DogWriteAheadLog log = open();
+        log.recover();
+        log.append("1", request("Rex"));
+        long buddy = log.append("2", request("Buddy"));
+        log.append("3", request("Max"));
+        log.close();
+
+        // When - one byte of the third record's payload flips
+        corrupt(segments().get(0), (int) buddy + 8);
+
+        // Then
+        assertThat(open().recover()).extracting(DogWriteAheadLog.Entry::id).containsExactly("1", "2");
+    }
+
+    @Test
+    void testAppendsGoToNewSegmentAfterRecovery() throws IOException {
+        // Given
+        DogWriteAheadLog log = open();
+        log.recover();
+        log.append("1", request("Rex"));
+        log.close();
+
+        // When
+        DogWriteAheadLog reopened = open();
+        reopened.recover();
+        reopened.append("2", request("Buddy"));
+        reopened.close();
+
+        // Then
+        assertThat(segments()).hasSize(2);
+        assertThat(open().recover()).extracting(DogWriteAheadLog.Entry::id).containsExactly("1", "2");
+    }
+
+    private DogWriteAheadLog open() throws IOException {
+        return new DogWriteAheadLog(directory, DataSize.ofKilobytes(64), false);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static void corrupt(Path segment, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, offset);
+            one.flip();
+            byte value = one.get();
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (value ^ 0xFF)}), offset);
+        }
+    }
+
+    private static DogRequestDto request(String name) {
+        return DogRequestDto.builder().name(name).breed("Labrador").build();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogRequestDto;
+import com.example.demo.models.DogResponseDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DogWriteBehindQueueTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private DogWriteBehindQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    void testEnqueuedDogsAreFlushedInBatchesOnStop() {
+        // Given
+        queue = queue(3, 2);
+        List<List<Dog>> batches = new ArrayList<>();
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.getArgument(0)));
+            return bulkOperations;
+        });
+        queue.start();
+
+        // When
+        DogResponseDto first = queue.enqueue(request("Rex"));
+        queue.enqueue(request("Buddy"));
+        queue.enqueue(request("Max"));
+        queue.stop();
+
+        // Then - everything accepted was written, at most two dogs per insert
+        assertThat(first.getId()).hasSize(24);
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+        assertThat(batches).flatMap(batch -> batch).extracting(Dog::getName)
+                .containsExactlyInAnyOrder("Rex", "Buddy", "Max");
+        assertThat(batches.get(0).get(0).getId()).isEqualTo(first.getId());
+        assertThat(registry.get("dogs.writebehind.queue").gauge().value()).isZero();
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws InterruptedException {
+        // Given - the writer is stuck flushing the first dog while two more fill the queue
+        queue = queue(2, 10);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return null;
+        });
+        queue.start();
+        queue.enqueue(request("Rex"));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.enqueue(request("Buddy"));
+        queue.enqueue(request("Max"));
+
+        try {
+            // When / Then
+            assertThatThrownBy(() -> queue.enqueue(request("Charlie")))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode())
+                            .isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+            assertThat(registry.get("dogs.writebehind.rejected").counter().count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testRejectsBeforeStart() {
+        // Given
+        queue = queue(2, 10);
+
+        // When / Then
+        assertThatThrownBy(() -> queue.enqueue(request("Rex")))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void testFlushRetriesTransientFailures() throws InterruptedException {
+        // Given
+        queue = queue(2, 10);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute())
+                .thenThrow(new DataAccessResourceFailureException("connection reset"))
+                .thenReturn(null);
+        List<DogWriteBehindQueue.Pending> batch = List.of(pending("1"));
+
+        // When
+        queue.flush(batch);
+
+        // Then
+        verify(bulkOperations, times(2)).execute();
+        assertThat(registry.get("dogs.writebehind.failed").counter().count()).isZero();
+    }
+
+    @Test
+    void testFlushGivesUpAfterMaxRetries() throws InterruptedException {
+        // Given
+        queue = queue(2, 10);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When
+        queue.flush(List.of(pending("1"), pending("2")));
+
+        // Then - the first attempt plus one retry
+        verify(bulkOperations, times(2)).execute();
+        assertThat(registry.get("dogs.writebehind.failed").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void testDogsLeftInWriteAheadLogAreWrittenAfterRestart(@TempDir Path directory) throws IOException {
+        // Given - MongoDB is down until the first queue has shut down
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        List<Dog> written = new ArrayList<>();
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0));
+            return bulkOperations;
+        });
+        when(bulkOperations.execute()).thenThrow(new DataAccessResourceFailureException("failover"));
+        DogWriteAheadLog firstLog = new DogWriteAheadLog(directory, DataSize.ofKilobytes(64), false);
+        queue = walQueue(firstLog);
+        queue.start();
+        String rex = queue.enqueue(request("Rex")).getId();
+        String buddy = queue.enqueue(request("Buddy")).getId();
+        queue.stop();
+        firstLog.close();
+
+        // When
+        reset(bulkOperations);
+        written.clear();
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0));
+            return bulkOperations;
+        });
+        queue = walQueue(new DogWriteAheadLog(directory, DataSize.ofKilobytes(64), false));
+        queue.start();
+        queue.stop();
+
+        // Then
+        assertThat(written).extracting(Dog::getId).containsExactly(rex, buddy);
+        assertThat(written).extracting(Dog::getName).containsExactly("Rex", "Buddy");
+    }
+
+    @Test
+    void testStopInterruptsWriterStuckPastShutdownTimeout() {
+        // Given - an insert that never returns
+        queue = new DogWriteBehindQueue(mongoTemplate, Mappers.getMapper(DogMapper.class), registry,
+                (DogWriteAheadLog) null, 10, 10, Duration.ofMillis(10), 1, Duration.ofMillis(200));
+        CountDownLatch never = new CountDownLatch(1);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Dog.class)).thenReturn(bulkOperations);
+        when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            never.await();
+            return null;
+        });
+        queue.start();
+        queue.enqueue(request("Rex"));
+
+        // When
+        long start = System.nanoTime();
+        queue.stop();
+
+        // Then - the writer was interrupted instead of waited for, and the dog counted as lost
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(queue.isRunning()).isFalse();
+        assertThat(registry.get("dogs.writebehind.failed").counter().count()).isEqualTo(1);
+    }
+
+    private DogWriteBehindQueue walQueue(DogWriteAheadLog writeAheadLog) {
+        return new DogWriteBehindQueue(mongoTemplate, Mappers.getMapper(DogMapper.class), registry,
+                writeAheadLog, 10, 10, Duration.ofMillis(10), 1, Duration.ofSeconds(5));
+    }
+
+    private DogWriteBehindQueue queue(int capacity, int flushSize) {
+        return new DogWriteBehindQueue(mongoTemplate, Mappers.getMapper(DogMapper.class), registry,
+                (DogWriteAheadLog) null, capacity, flushSize, Duration.ofMillis(10), 1, Duration.ofSeconds(5));
+    }
+
+    private static DogWriteBehindQueue.Pending pending(String id) {
+        return new DogWriteBehindQueue.Pending(Dog.builder().id(id).name("Rex").build(), -1);
+    }
+
+    private static DogRequestDto request(String name) {
+        return DogRequestDto.builder().name(name).breed("Labrador").build();
+    }
+}
@@ -2,10 +2,14 @@ package com.example.demo.services;
 
 import com.example.demo.models.Dog;
 import com.example.demo.repositories.DogRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -20,7 +24,7 @@ import static org.assertj.core.api.Assertions.assertThat;
  * Use ExampleServiceTest for unit testing in restrictive environments.
  */
 @DataMongoTest
-@Import(ExampleService.class)
+@Import({ExampleService.class, DogCache.class, DogMetrics.class})
 @ActiveProfiles("test")
 public class ExampleServiceIntegrationTest {
 
@@ -33,6 +37,15 @@ public class ExampleServiceIntegrationTest {
     private Dog dog1;
     private Dog dog2;
 
+    // The data slice does not auto-configure metrics
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     @BeforeEach
     void setUp() {
         // Clear existing data
@@ -1,23 +1,47 @@
 package com.example.demo.services;
 
 import com.example.demo.models.Dog;
+import com.example.demo.models.DogBatchItemDto;
+import com.example.demo.models.DogBatchResponseDto;
 import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogPageResponseDto;
 import com.example.demo.models.DogRequestDto;
 import com.example.demo.models.DogResponseDto;
+import com.example.demo.models.DogSearchResponseDto;
 import com.example.demo.repositories.DogRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,7 +53,20 @@ public class ExampleServiceTest {
     @Mock
     private DogMapper dogMapper;
 
-    @InjectMocks
+    @Mock
+    private DogCache dogCache;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private DogMetrics dogMetrics = new DogMetrics(meterRegistry);
+
+    @Spy
+    private DogReadCoalescer readCoalescer = new DogReadCoalescer(Duration.ofSeconds(1), meterRegistry);
+
     private ExampleService exampleService;
 
     private Dog dog1;
@@ -37,6 +74,9 @@ public class ExampleServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Built by hand, the chunked mapper wraps the mocked DogMapper
+        exampleService = new ExampleService(dogRepository, dogMapper, new DogChunkedMapper(dogMapper, 2, 2, 4),
+                dogCache, mongoTemplate, dogMetrics, readCoalescer);
         // Create test objects in memory (no database required)
         dog1 = Dog.builder().id("1").name("Rex").breed("German Shepherd").build();
         dog2 = Dog.builder().id("2").name("Buddy").breed("Golden Retriever").build();
@@ -131,7 +171,9 @@ public class ExampleServiceTest {
     void testGetAllDogsAsDto() {
         // Given
         List<Dog> dogs = Arrays.asList(dog1, dog2);
-        when(dogRepository.findAll()).thenReturn(dogs);
+        when(mongoTemplate.aggregate(DogCollectionVersion.AGGREGATION, Document.class))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        when(dogRepository.findAllBy()).thenReturn(dogs);
         when(dogMapper.toDogResponseDtoList(dogs)).thenReturn(Arrays.asList(
                 DogResponseDto.builder().id("1").name("Rex").breed("German Shepherd").build(),
                 DogResponseDto.builder().id("2").name("Buddy").breed("Golden Retriever").build()
@@ -144,10 +186,29 @@ public class ExampleServiceTest {
         assertThat(result).hasSize(2);
         assertThat(result.get(0).getName()).isEqualTo("Rex");
         assertThat(result.get(1).getName()).isEqualTo("Buddy");
-        verify(dogRepository, times(1)).findAll();
+        verify(dogRepository, times(1)).findAllBy();
         verify(dogMapper, times(1)).toDogResponseDtoList(dogs);
     }
 
+    @Test
+    void testGetAllDogsWithVersionReadsVersionFirst() {
+        // Given
+        Instant lastModified = Instant.parse("2024-05-01T10:00:00Z");
+        when(mongoTemplate.aggregate(DogCollectionVersion.AGGREGATION, Document.class))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", null).append("count", 2)
+                        .append("versions", 3).append("lastModified", Date.from(lastModified))), new Document()));
+        when(dogRepository.findAllBy()).thenReturn(List.of(dog1, dog2));
+
+        // When
+        ExampleService.AllDogs result = exampleService.getAllDogsWithVersion();
+
+        // Then - an ETag that can only be older than the dogs it is sent with
+        assertThat(result.version()).isEqualTo(new DogCollectionVersion(2, 3, lastModified));
+        InOrder inOrder = inOrder(mongoTemplate, dogRepository);
+        inOrder.verify(mongoTemplate).aggregate(DogCollectionVersion.AGGREGATION, Document.class);
+        inOrder.verify(dogRepository).findAllBy();
+    }
+
     @Test
     void testGetDogByIdAsDto() {
         // Given
@@ -165,6 +226,81 @@ public class ExampleServiceTest {
         assertThat(result.getName()).isEqualTo("Rex");
         verify(dogRepository, times(1)).findById("1");
         verify(dogMapper, times(1)).toDogResponseDto(dog1);
+        verify(dogCache, times(1)).putIfUnchangedSince("1", dog1.getVersion(), expectedDto, 0L);
+    }
+
+    @Test
+    void testGetDogByIdAsDtoCacheHit() {
+        // Given
+        DogResponseDto cachedDto = DogResponseDto.builder()
+                .id("1").name("Rex").breed("German Shepherd").build();
+        when(dogCache.get("1")).thenReturn(Optional.of(cachedDto));
+
+        // When
+        DogResponseDto result = exampleService.getDogByIdAsDto("1");
+
+        // Then
+        assertThat(result).isSameAs(cachedDto);
+        verifyNoInteractions(dogRepository, dogMapper);
+    }
+
+    @Test
+    void testGetDogsByIdsAsDto() {
+        // Given - dog 1 is cached, dog 2 is in MongoDB and dog 3 does not exist
+        DogResponseDto dto1 = DogResponseDto.builder().id("1").name("Rex").build();
+        DogResponseDto dto2 = DogResponseDto.builder().id("2").name("Buddy").build();
+        when(dogCache.get(anyString())).thenReturn(Optional.empty());
+        when(dogCache.get("1")).thenReturn(Optional.of(dto1));
+        when(dogCache.lastWrite()).thenReturn(7L);
+        when(dogRepository.findAllById(List.of("3", "2"))).thenReturn(List.of(dog2));
+        when(dogMapper.toDogResponseDto(dog2)).thenReturn(dto2);
+
+        // When
+        DogBatchResponseDto result = exampleService.getDogsByIdsAsDto(List.of("3", "1", "2", "3"));
+
+        // Then - one item per requested id, in request order
+        assertThat(result.getItems()).extracting(DogBatchItemDto::getId).containsExactly("3", "1", "2", "3");
+        assertThat(result.getItems()).extracting(DogBatchItemDto::isFound).containsExactly(false, true, true, false);
+        assertThat(result.getItems()).extracting(DogBatchItemDto::getDog).containsExactly(null, dto1, dto2, null);
+        // Cached unless written since before the query
+        InOrder inOrder = inOrder(dogCache, dogRepository);
+        inOrder.verify(dogCache).lastWrite();
+        inOrder.verify(dogRepository).findAllById(List.of("3", "2"));
+        inOrder.verify(dogCache).putIfUnchangedSince("2", dog2.getVersion(), dto2, 7L);
+        verify(dogCache, never()).put(any(), any(), any());
+    }
+
+    @Test
+    void testGetDogsByIdsAsDtoAllCached() {
+        // Given
+        DogResponseDto dto1 = DogResponseDto.builder().id("1").name("Rex").build();
+        when(dogCache.get("1")).thenReturn(Optional.of(dto1));
+
+        // When
+        DogBatchResponseDto result = exampleService.getDogsByIdsAsDto(List.of("1"));
+
+        // Then
+        assertThat(result.getItems()).extracting(DogBatchItemDto::getDog).containsExactly(dto1);
+        verifyNoInteractions(dogRepository);
+    }
+
+    @Test
+    void testGetDogsByIdsAsDtoRejectsInvalidIds() {
+        // Given
+        List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            tooMany.add(String.valueOf(i));
+        }
+
+        // When & Then
+        assertThatThrownBy(() -> exampleService.getDogsByIdsAsDto(tooMany))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("At most 100 ids");
+        assertThatThrownBy(() -> exampleService.getDogsByIdsAsDto(List.of("1", " ")))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> exampleService.getDogsByIdsAsDto(List.of()))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(dogRepository);
     }
 
     @Test
@@ -191,5 +327,236 @@ public class ExampleServiceTest {
         verify(dogMapper, times(1)).toDogEntity(requestDto);
         verify(dogRepository, times(1)).save(newDog);
         verify(dogMapper, times(1)).toDogResponseDto(savedDog);
+        verify(dogCache, times(1)).put("3", savedDog.getVersion(), expectedDto);
+    }
+
+    @Test
+    void testGetDogPageAsDtoFirstPage() {
+        // Given
+        List<Dog> dogs = Arrays.asList(dog1, dog2);
+        List<DogResponseDto> dtos = Arrays.asList(
+                DogResponseDto.builder().id("1").name("Rex").breed("German Shepherd").build(),
+                DogResponseDto.builder().id("2").name("Buddy").breed("Golden Retriever").build());
+        when(dogRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(dogs);
+        when(dogMapper.toDogResponseDtoList(dogs)).thenReturn(dtos);
+
+        // When
+        DogPageResponseDto result = exampleService.getDogPageAsDto(null, 2);
+
+        // Then
+        assertThat(result.getItems()).isEqualTo(dtos);
+        assertThat(result.getNextCursor()).isEqualTo("2");
+        verify(dogRepository, never()).findAllBy();
+    }
+
+    @Test
+    void testGetDogPageAsDtoLastPage() {
+        // Given
+        List<Dog> dogs = List.of(dog2);
+        when(dogRepository.findByIdGreaterThanOrderByIdAsc("1", Limit.of(10))).thenReturn(dogs);
+        when(dogMapper.toDogResponseDtoList(dogs)).thenReturn(List.of(
+                DogResponseDto.builder().id("2").name("Buddy").breed("Golden Retriever").build()));
+
+        // When
+        DogPageResponseDto result = exampleService.getDogPageAsDto("1", 10);
+
+        // Then
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void testGetDogPageAsDtoCapsLimit() {
+        // Given
+        when(dogRepository.findAllByOrderByIdAsc(Limit.of(ExampleService.MAX_PAGE_SIZE)))
+                .thenReturn(List.of());
+
+        // When
+        DogPageResponseDto result = exampleService.getDogPageAsDto(null, ExampleService.MAX_PAGE_SIZE + 1);
+
+        // Then
+        assertThat(result.getNextCursor()).isNull();
+        verify(dogRepository, times(1)).findAllByOrderByIdAsc(Limit.of(ExampleService.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void testGetDogPageAsDtoRejectsInvalidLimit() {
+        assertThatThrownBy(() -> exampleService.getDogPageAsDto(null, 0))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(dogRepository);
+    }
+
+    @Test
+    void testStreamAllDogsAsDto() {
+        // Given
+        DogResponseDto dto1 = DogResponseDto.builder().id("1").name("Rex").breed("German Shepherd").build();
+        DogResponseDto dto2 = DogResponseDto.builder().id("2").name("Buddy").breed("Golden Retriever").build();
+        when(dogRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(dog1, dog2));
+        when(dogMapper.toDogResponseDto(dog1)).thenReturn(dto1);
+        when(dogMapper.toDogResponseDto(dog2)).thenReturn(dto2);
+
+        // When
+        List<DogResponseDto> streamed = new ArrayList<>();
+        exampleService.streamAllDogsAsDto(streamed::add);
+
+        // Then
+        assertThat(streamed).containsExactly(dto1, dto2);
+        verify(dogRepository, never()).findAllBy();
+    }
+
+    @Test
+    void testUpdateDogFromDto() {
+        // Given
+        DogRequestDto requestDto = DogRequestDto.builder().name("Rex II").breed("German Shepherd").build();
+        Dog updatedDog = Dog.builder().id("1").version(1).name("Rex II").breed("German Shepherd").build();
+        DogResponseDto expectedDto = DogResponseDto.builder()
+                .id("1").name("Rex II").breed("German Shepherd").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Dog.class))).thenReturn(updatedDog);
+        when(dogMapper.toDogResponseDto(updatedDog)).thenReturn(expectedDto);
+
+        // When
+        DogResponseDto result = exampleService.updateDogFromDto("1", requestDto);
+
+        // Then
+        assertThat(result).isEqualTo(expectedDto);
+        verify(dogCache, times(1)).put("1", 1, expectedDto);
+        verify(dogRepository, never()).findById(any());
+        verify(dogRepository, never()).save(any());
+    }
+
+    @Test
+    void testUpdateDogFromDtoNotFound() {
+        // Given
+        DogRequestDto requestDto = DogRequestDto.builder().name("Rex II").breed("German Shepherd").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Dog.class))).thenReturn(null);
+
+        // When & Then
+        assertThatThrownBy(() -> exampleService.updateDogFromDto("999", requestDto))
+                .isInstanceOf(ResponseStatusException.class);
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(Dog.class));
+    }
+
+    @Test
+    void testUpdateDogFromDtoVersionConflict() {
+        // Given
+        DogRequestDto requestDto = DogRequestDto.builder().name("Rex II").breed("German Shepherd").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Dog.class))).thenReturn(null);
+        when(mongoTemplate.exists(any(Query.class), eq(Dog.class))).thenReturn(true);
+
+        // When & Then
+        assertThatThrownBy(() -> exampleService.updateDogFromDto("1", requestDto, 3))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(dogCache, never()).put(any(), any(), any());
+    }
+
+    @Test
+    void testDeleteDogById() {
+        // Given
+        when(mongoTemplate.remove(any(Query.class), eq(Dog.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        // When
+        exampleService.deleteDogById("1");
+
+        // Then
+        verify(dogCache, times(1)).evict("1");
+        verify(dogRepository, never()).existsById(any());
+    }
+
+    @Test
+    void testDeleteDogByIdNotFound() {
+        // Given
+        when(mongoTemplate.remove(any(Query.class), eq(Dog.class))).thenReturn(DeleteResult.acknowledged(0));
+
+        // When & Then
+        assertThatThrownBy(() -> exampleService.deleteDogById("999"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void testMongoOperationsAreTimedByOutcome() {
+        // Given
+        when(mongoTemplate.aggregate(DogCollectionVersion.AGGREGATION, Document.class))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        when(dogRepository.findAllBy()).thenReturn(Arrays.asList(dog1, dog2));
+        when(dogRepository.findById("999")).thenReturn(Optional.empty());
+
+        // When
+        exampleService.getAllDogsAsDto();
+        assertThatThrownBy(() -> exampleService.getDogByIdAsDto("999"))
+                .isInstanceOf(ResponseStatusException.class);
+
+        // Then
+        assertThat(meterRegistry.get("dogs.repository")
+                .tags("operation", "findAll", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dogs.repository")
+                .tags("operation", "findById", "outcome", "not_found").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dogs.repository.results")
+                .tag("operation", "findAll").summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void testSearchDogsAsDto() {
+        // Given
+        DogResponseDto dto1 = DogResponseDto.builder().id("1").name("Rex").breed("German Shepherd").build();
+        when(dogRepository.searchByBreedAndNamePrefix("German Shepherd", "Re", Limit.of(ExampleService.MAX_PAGE_SIZE)))
+                .thenReturn(List.of(dog1));
+        when(dogMapper.toDogResponseDtoList(List.of(dog1))).thenReturn(List.of(dto1));
+
+        // When
+        DogSearchResponseDto result = exampleService.searchDogsAsDto("German Shepherd", "Re", 5000, false);
+
+        // Then
+        assertThat(result.getItems()).containsExactly(dto1);
+        assertThat(result.getCount()).isNull();
+        verify(dogRepository, never()).findAllBy();
+    }
+
+    @Test
+    void testSearchDogsAsDtoCountOnly() {
+        // Given
+        when(dogRepository.countByBreedAndNamePrefix(null, "Re")).thenReturn(3L);
+
+        // When
+        DogSearchResponseDto result = exampleService.searchDogsAsDto(" ", "Re", 0, true);
+
+        // Then
+        assertThat(result.getCount()).isEqualTo(3L);
+        assertThat(result.getItems()).isNull();
+        verify(dogRepository, never()).searchByBreedAndNamePrefix(any(), any(), any());
+    }
+
+    @Test
+    void testSearchDogsAsDtoRequiresFilter() {
+        assertThatThrownBy(() -> exampleService.searchDogsAsDto(null, "", 10, false))
+                .isInstanceOf(ResponseStatusException.class);
+        verifyNoInteractions(dogRepository);
+    }
+
+    @Test
+    void testDogCollectionVersionChangesWithEveryWrite() {
+        // Given - two dogs at versions 0 and 3
+        Instant t1 = Instant.parse("2024-05-01T10:00:00Z");
+        String etag = DogCollectionVersion.of(version(2, 3, t1)).etag();
+
+        // When
+        String unchanged = DogCollectionVersion.of(version(2, 3, t1)).etag();
+        String updated = DogCollectionVersion.of(version(2, 4, t1.plusSeconds(1))).etag();
+        String deleted = DogCollectionVersion.of(version(1, 3, t1)).etag();
+        // The dog at version 0 deleted and another one created since
+        String replaced = DogCollectionVersion.of(version(2, 3, t1.plusSeconds(2))).etag();
+
+        // Then
+        assertThat(unchanged).isEqualTo(etag);
+        assertThat(etag).isEqualTo("\"2-3-" + t1.toEpochMilli() + "\"");
+        assertThat(List.of(updated, deleted, replaced)).doesNotContain(etag).doesNotHaveDuplicates();
+        assertThat(DogCollectionVersion.of(null).etag()).isEqualTo("\"0-0-0\"");
+    }
+
+    private static Document version(int count, int versions, Instant lastModified) {
+        return new Document("_id", null).append("count", count).append("versions", versions)
+                .append("lastModified", Date.from(lastModified));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,258 @@
+package com.example.demo.services;
+
+import com.example.demo.models.Dog;
+import com.example.demo.models.DogBatchItemDto;
+import com.example.demo.models.DogMapper;
+import com.example.demo.models.DogPageResponseDto;
+import com.example.demo.models.DogRequestDto;
+import com.example.demo.models.DogResponseDto;
+import com.example.demo.repositories.ReactiveDogRepository;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Mirrors ExampleServiceTest for the reactive service.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReactiveExampleServiceTest {
+
+    @Mock
+    private ReactiveDogRepository dogRepository;
+
+    @Mock
+    private DogMapper dogMapper;
+
+    @Mock
+    private DogCache dogCache;
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private DogMetrics dogMetrics = new DogMetrics(meterRegistry);
+
+    @Spy
+    private DogReadCoalescer readCoalescer = new DogReadCoalescer(Duration.ofSeconds(1), meterRegistry);
+
+    @InjectMocks
+    private ReactiveExampleService exampleService;
+
+    private Dog dog1;
+    private Dog dog2;
+    private DogResponseDto dto1;
+    private DogResponseDto dto2;
+
+    @BeforeEach
+    void setUp() {
+        dog1 = Dog.builder().id("1").version(0).name("Rex").breed("German Shepherd").build();
+        dog2 = Dog.builder().id("2").version(0).name("Buddy").breed("Golden Retriever").build();
+        dto1 = DogResponseDto.builder().id("1").version(0).name("Rex").breed("German Shepherd").build();
+        dto2 = DogResponseDto.builder().id("2").version(0).name("Buddy").breed("Golden Retriever").build();
+    }
+
+    @Test
+    void testGetAllDogsAsDto() {
+        // Given
+        when(dogRepository.streamAllByOrderByIdAsc()).thenReturn(Flux.just(dog1, dog2));
+        when(dogMapper.toDogResponseDto(dog1)).thenReturn(dto1);
+        when(dogMapper.toDogResponseDto(dog2)).thenReturn(dto2);
+
+        // When & Then
+        StepVerifier.create(exampleService.getAllDogsAsDto())
+                .expectNext(dto1, dto2)
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetDogCollectionVersion() {
+        // Given
+        Instant lastModified = Instant.parse("2024-05-01T10:00:00Z");
+        when(mongoTemplate.aggregate(DogCollectionVersion.AGGREGATION, Document.class)).thenReturn(Flux.just(
+                new Document("_id", null).append("count", 2).append("versions", 3)
+                        .append("lastModified", Date.from(lastModified))));
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogCollectionVersion())
+                .expectNext(new DogCollectionVersion(2, 3, lastModified))
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetDogCollectionVersionOfEmptyCollection() {
+        // Given - no dogs, no group
+        when(mongoTemplate.aggregate(DogCollectionVersion.AGGREGATION, Document.class)).thenReturn(Flux.empty());
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogCollectionVersion().map(DogCollectionVersion::etag))
+                .expectNext("\"0-0-0\"")
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetDogPageAsDto() {
+        // Given
+        List<Dog> dogs = List.of(dog1, dog2);
+        when(dogRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(Flux.fromIterable(dogs));
+        when(dogMapper.toDogResponseDtoList(dogs)).thenReturn(List.of(dto1, dto2));
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogPageAsDto(null, 2))
+                .expectNext(DogPageResponseDto.builder().items(List.of(dto1, dto2)).nextCursor("2").build())
+                .verifyComplete();
+    }
+
+    @Test
+    void testGetDogByIdAsDto() {
+        // Given
+        when(dogRepository.findById("1")).thenReturn(Mono.just(dog1));
+        when(dogMapper.toDogResponseDto(dog1)).thenReturn(dto1);
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogByIdAsDto("1"))
+                .expectNext(dto1)
+                .verifyComplete();
+        verify(dogCache, times(1)).putIfUnchangedSince("1", 0, dto1, 0L);
+    }
+
+    @Test
+    void testConcurrentLookupsShareOneQuery() {
+        // Given - the first lookup is still waiting for MongoDB when the second one arrives
+        Sinks.One<Dog> found = Sinks.one();
+        AtomicInteger queries = new AtomicInteger();
+        when(dogRepository.findById("1"))
+                .thenReturn(found.asMono().doOnSubscribe(subscription -> queries.incrementAndGet()));
+        when(dogMapper.toDogResponseDto(dog1)).thenReturn(dto1);
+        List<DogResponseDto> results = new CopyOnWriteArrayList<>();
+
+        // When
+        exampleService.getDogByIdAsDto("1").subscribe(results::add);
+        exampleService.getDogByIdAsDto("1").subscribe(results::add);
+        found.tryEmitValue(dog1);
+
+        // Then
+        assertThat(results).containsExactly(dto1, dto1);
+        assertThat(queries).hasValue(1);
+        assertThat(meterRegistry.get("dogs.repository").tag("operation", "findById").tag("outcome", "success")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetDogByIdAsDtoCacheHit() {
+        // Given
+        when(dogCache.get("1")).thenReturn(Optional.of(dto1));
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogByIdAsDto("1"))
+                .expectNext(dto1)
+                .verifyComplete();
+        verifyNoInteractions(dogRepository);
+    }
+
+    @Test
+    void testGetDogsByIdsAsDto() {
+        // Given
+        when(dogCache.get("1")).thenReturn(Optional.of(dto1));
+        when(dogRepository.findAllById(List.of("2", "3"))).thenReturn(Flux.just(dog2));
+        when(dogMapper.toDogResponseDto(dog2)).thenReturn(dto2);
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogsByIdsAsDto(List.of("1", "2", "3")))
+                .assertNext(result -> {
+                    assertThat(result.getItems()).extracting(DogBatchItemDto::isFound)
+                            .containsExactly(true, true, false);
+                    assertThat(result.getItems()).extracting(DogBatchItemDto::getDog)
+                            .containsExactly(dto1, dto2, null);
+                })
+                .verifyComplete();
+        verify(dogCache, times(1)).putIfUnchangedSince("2", 0, dto2, 0L);
+        verify(dogCache, never()).put(any(), any(), any());
+    }
+
+    @Test
+    void testGetDogByIdAsDtoNotFound() {
+        // Given
+        when(dogRepository.findById("999")).thenReturn(Mono.empty());
+
+        // When & Then
+        StepVerifier.create(exampleService.getDogByIdAsDto("999"))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    @Test
+    void testCreateDogFromDto() {
+        // Given
+        DogRequestDto requestDto = DogRequestDto.builder().name("Max").breed("Bulldog").build();
+        Dog newDog = Dog.builder().name("Max").breed("Bulldog").build();
+        Dog savedDog = Dog.builder().id("3").version(0).name("Max").breed("Bulldog").build();
+        DogResponseDto expectedDto = DogResponseDto.builder().id("3").name("Max").breed("Bulldog").build();
+        when(dogMapper.toDogEntity(requestDto)).thenReturn(newDog);
+        when(dogRepository.save(newDog)).thenReturn(Mono.just(savedDog));
+        when(dogMapper.toDogResponseDto(savedDog)).thenReturn(expectedDto);
+
+        // When & Then
+        StepVerifier.create(exampleService.createDogFromDto(requestDto))
+                .expectNext(expectedDto)
+                .verifyComplete();
+    }
+
+    @Test
+    void testUpdateDogFromDtoVersionConflict() {
+        // Given
+        DogRequestDto requestDto = DogRequestDto.builder().name("Rex II").breed("German Shepherd").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(Dog.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.exists(any(Query.class), eq(Dog.class))).thenReturn(Mono.just(true));
+
+        // When & Then
+        StepVerifier.create(exampleService.updateDogFromDto("1", requestDto, 3))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    void testDeleteDogByIdNotFound() {
+        // Given
+        when(mongoTemplate.remove(any(Query.class), eq(Dog.class))).thenReturn(Mono.just(DeleteResult.acknowledged(0)));
+
+        // When & Then
+        StepVerifier.create(exampleService.deleteDogById("999"))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.demo.services;
+
+import com.example.demo.config.TrafficProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TrafficGuardTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testPerClientRateLimitOnlyAffectsThatClient() {
+        // Given - one request per minute with a burst of two
+        TrafficGuard guard = guard(EndpointGroup.COLLECTION,
+                new TrafficProperties.Limits(null, null, 1.0 / 60, 2, null));
+        guard.admit(EndpointGroup.COLLECTION, "a");
+        guard.admit(EndpointGroup.COLLECTION, "a");
+
+        // When / Then
+        assertThatThrownBy(() -> guard.admit(EndpointGroup.COLLECTION, "a"))
+                .isInstanceOfSatisfying(TrafficRejectedException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(Long.parseLong(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isBetween(1L, 60L);
+                });
+        guard.admit(EndpointGroup.COLLECTION, "b");
+        assertThat(registry.get("dogs.traffic.rejected")
+                .tag("endpoint", "collection").tag("reason", "client_rate").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testOverallRateLimitAppliesAcrossClients() {
+        // Given
+        TrafficGuard guard = guard(EndpointGroup.SEARCH,
+                new TrafficProperties.Limits(1.0 / 60, 1, null, null, null));
+        guard.admit(EndpointGroup.SEARCH, "a");
+
+        // When / Then
+        assertThatThrownBy(() -> guard.admit(EndpointGroup.SEARCH, "b"))
+                .isInstanceOf(TrafficRejectedException.class);
+    }
+
+    @Test
+    void testBulkheadCapsConcurrentRequestsUntilReleased() {
+        // Given
+        TrafficGuard guard = guard(EndpointGroup.COLLECTION,
+                new TrafficProperties.Limits(null, null, null, null, 1));
+        TrafficGuard.Permit permit = guard.admit(EndpointGroup.COLLECTION, "a");
+
+        // When / Then
+        assertThatThrownBy(() -> guard.admit(EndpointGroup.COLLECTION, "b"))
+                .isInstanceOfSatisfying(TrafficRejectedException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(registry.get("dogs.traffic.in-flight").tag("endpoint", "collection").gauge().value()).isEqualTo(1.0);
+        permit.release();
+        permit.release();
+        guard.admit(EndpointGroup.COLLECTION, "b");
+        assertThat(registry.get("dogs.traffic.in-flight").tag("endpoint", "collection").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testGroupsWithoutLimitsAreNotLimited() {
+        // Given
+        TrafficGuard guard = guard(EndpointGroup.COLLECTION,
+                new TrafficProperties.Limits(null, null, null, null, 1));
+
+        // When / Then - the lookup bulkhead is independent of the collection one
+        guard.admit(EndpointGroup.COLLECTION, "a");
+        for (int i = 0; i < 100; i++) {
+            guard.admit(EndpointGroup.LOOKUP, "a");
+        }
+    }
+
+    @Test
+    void testGcraRefillsOverTime() {
+        // Given - ten per second, burst of one
+        TrafficGuard.Gcra gcra = TrafficGuard.Gcra.of(10.0, 1);
+        AtomicLong arrival = new AtomicLong(0);
+
+        // When / Then
+        assertThat(gcra.tryAcquire(arrival, 0)).isZero();
+        assertThat(gcra.tryAcquire(arrival, 0)).isEqualTo(100_000_000L);
+        assertThat(gcra.tryAcquire(arrival, 100_000_000L)).isZero();
+    }
+
+    @Test
+    void testClassifiesEndpoints() {
+        assertThat(EndpointGroup.of("GET", "/v1/examples/dogs", false)).isEqualTo(EndpointGroup.COLLECTION);
+        assertThat(EndpointGroup.of("GET", "/v1/examples/dogs", true)).isEqualTo(EndpointGroup.PAGE);
+        assertThat(EndpointGroup.of("GET", "/v1/examples/dogs/stream", false)).isEqualTo(EndpointGroup.COLLECTION);
+        assertThat(EndpointGroup.of("GET", "/v1/examples/dogs/search", false)).isEqualTo(EndpointGroup.SEARCH);
+        assertThat(EndpointGroup.of("GET", "/v1/examples/dogs/42", false)).isEqualTo(EndpointGroup.LOOKUP);
+        assertThat(EndpointGroup.of("PUT", "/v1/examples/dogs/42", false)).isEqualTo(EndpointGroup.WRITE);
+        assertThat(EndpointGroup.of("POST", "/v1/examples/dogs/bulk", false)).isEqualTo(EndpointGroup.BULK);
+        assertThat(EndpointGroup.of("GET", "/v1/examples/dogs/changes", false)).isNull();
+        assertThat(EndpointGroup.of("GET", "/actuator/health", false)).isNull();
+    }
+
+    private TrafficGuard guard(EndpointGroup group, TrafficProperties.Limits limits) {
+        return new TrafficGuard(new TrafficProperties("X-Client-Id", null, 100, Map.of(group, limits)), registry);
+    }
+}